@@ -2,16 +2,19 @@ package com.intuit.taxrefund;
 
 import com.intuit.taxrefund.ml.MlProps;
 import com.intuit.taxrefund.openai.OpenAiProps;
+import com.intuit.taxrefund.outbox.OutboxProps;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 import com.intuit.taxrefund.auth.CookieProps;
 import com.intuit.taxrefund.ratelimit.RateLimitProps;
+import com.intuit.taxrefund.refund.IrsProps;
+import com.intuit.taxrefund.refund.RefundProps;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties({ CookieProps.class, RateLimitProps.class, MlProps.class, OpenAiProps.class })
+@EnableConfigurationProperties({ CookieProps.class, RateLimitProps.class, MlProps.class, OpenAiProps.class, RefundProps.class, OutboxProps.class, IrsProps.class })
 @EnableScheduling
 public class TaxRefundApplication {
     public static void main(String[] args) {
@@ -0,0 +1,15 @@
+package com.intuit.taxrefund.ai.repo;
+
+import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
+
+import java.util.List;
+
+public interface RefundEtaPredictionBulkRepository {
+
+    /**
+     * Multi-row insert in one JDBC batch; rows that already exist for
+     * (user_id, tax_year, status, model_version) are skipped (idempotent replays).
+     * @return number of rows actually inserted
+     */
+    int insertIgnoringDuplicates(List<RefundEtaPrediction> rows);
+}
@@ -0,0 +1,49 @@
+package com.intuit.taxrefund.ai.repo;
+
+import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+// JDBC on purpose: IDENTITY ids disable Hibernate insert batching, and saveAll cannot express ON CONFLICT
+class RefundEtaPredictionBulkRepositoryImpl implements RefundEtaPredictionBulkRepository {
+
+    private static final String INSERT = """
+        insert into refund_eta_prediction
+            (user_id, tax_year, status, eta_days, estimated_available_at, model_name, model_version, features, created_at)
+        values (?, ?, ?, ?, ?, ?, ?, ?::jsonb, ?)
+        on conflict (user_id, tax_year, status, model_version) do nothing
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    RefundEtaPredictionBulkRepositoryImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public int insertIgnoringDuplicates(List<RefundEtaPrediction> rows) {
+        if (rows.isEmpty()) return 0;
+
+        int[][] counts = jdbc.batchUpdate(INSERT, rows, rows.size(), (ps, r) -> {
+            ps.setLong(1, r.getUserId());
+            ps.setInt(2, r.getTaxYear());
+            ps.setString(3, r.getStatus());
+            ps.setInt(4, r.getEtaDays());
+            ps.setTimestamp(5, r.getEstimatedAvailableAt() == null ? null : Timestamp.from(r.getEstimatedAvailableAt()));
+            ps.setString(6, r.getModelName());
+            ps.setString(7, r.getModelVersion());
+            ps.setString(8, r.getFeatures());
+            ps.setTimestamp(9, Timestamp.from(r.getCreatedAt()));
+        });
+
+        int inserted = 0;
+        for (int[] batch : counts) {
+            for (int c : batch) {
+                if (c > 0) inserted += c;
+            }
+        }
+        return inserted;
+    }
+}
@@ -3,12 +3,23 @@ package com.intuit.taxrefund.ai.repo;
 import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface RefundEtaPredictionRepository extends JpaRepository<RefundEtaPrediction, Long> {
+public interface RefundEtaPredictionRepository
+    extends JpaRepository<RefundEtaPrediction, Long>, RefundEtaPredictionBulkRepository {
+
+    interface PredictionKey {
+        Long getUserId();
+        int getTaxYear();
+        String getStatus();
+    }
 
     Optional<RefundEtaPrediction> findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(
         Long userId, int taxYear, String status
     );
-    boolean existsByUserIdAndTaxYearAndStatusAndModelVersion(Long userId, int taxYear, String status, String modelVersion);
-}
\ No newline at end of file
+
+    // Keys only (no features jsonb): which of these users already have a prediction from this model
+    List<PredictionKey> findByModelVersionAndUserIdIn(String modelVersion, Collection<Long> userIds);
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.intuit.taxrefund.api.ApiError;
 import com.intuit.taxrefund.auth.jwt.JwtAuthenticationFilter;
 import com.intuit.taxrefund.ratelimit.RateLimitFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -46,8 +47,11 @@ public class SecurityConfig {
             }))
 
             .authorizeHttpRequests(auth -> auth
+                // SSE: the request was authorized on entry; async re-dispatches carry no bearer check
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated())
 
             .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
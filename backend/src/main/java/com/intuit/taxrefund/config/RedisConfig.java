@@ -4,12 +4,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
  * Minimal Redis configuration:
- * - StringRedisTemplate for simple string keys/values (rate limit, cache JSON as String).
+ * - StringRedisTemplate for simple string keys/values (rate limit, leases, pub/sub).
+ * - RedisTemplate<String, byte[]> for binary-encoded cache values (refund status).
+ * - RedisMessageListenerContainer for pub/sub (cross-node cache invalidation).
  */
 @Configuration
 public class RedisConfig {
@@ -24,4 +29,22 @@ public class RedisConfig {
         t.setHashValueSerializer(StringRedisSerializer.UTF_8);
         return t;
     }
-}
\ No newline at end of file
+
+    @Bean
+    public RedisTemplate<String, byte[]> bytesRedisTemplate(RedisConnectionFactory cf) {
+        RedisTemplate<String, byte[]> t = new RedisTemplate<>();
+        t.setConnectionFactory(cf);
+        t.setKeySerializer(StringRedisSerializer.UTF_8);
+        t.setValueSerializer(RedisSerializer.byteArray());
+        t.setHashKeySerializer(StringRedisSerializer.UTF_8);
+        t.setHashValueSerializer(RedisSerializer.byteArray());
+        return t;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory cf) {
+        RedisMessageListenerContainer c = new RedisMessageListenerContainer();
+        c.setConnectionFactory(cf);
+        return c;
+    }
+}
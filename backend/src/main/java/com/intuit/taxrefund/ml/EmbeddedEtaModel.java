@@ -0,0 +1,204 @@
+package com.intuit.taxrefund.ml;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-process evaluator for the gradient-boosted trees exported by ml/app.py (/model/export, format gbrt-v1).
+ *
+ * All trees are flattened into shared primitive arrays (node i of the ensemble: feature[i], threshold[i],
+ * left[i], right[i], value[i]; child indexes are absolute) so evaluation is a tight loop with no allocation
+ * beyond the feature vector. Immutable; replaced wholesale on reload.
+ */
+public final class EmbeddedEtaModel {
+
+    public static final String FORMAT = "gbrt-v1";
+
+    private static final int MAX_ETA_DAYS = 3650;
+
+    private final String modelName;
+    private final String modelVersion;
+
+    // x = [one-hot(status), one-hot(filing_state), expected_amount, dow, month]
+    private final Map<String, Integer> statusIndex;
+    private final Map<String, Integer> filingStateIndex;
+    private final int numericOffset;
+    private final int nFeatures;
+
+    private final double init;
+    private final double learningRate;
+
+    private final int[] treeRoots;
+    private final int[] feature;
+    private final double[] threshold;
+    private final int[] left;
+    private final int[] right;
+    private final double[] value;
+
+    private EmbeddedEtaModel(
+        String modelName, String modelVersion,
+        Map<String, Integer> statusIndex, Map<String, Integer> filingStateIndex, int numericOffset, int nFeatures,
+        double init, double learningRate,
+        int[] treeRoots, int[] feature, double[] threshold, int[] left, int[] right, double[] value
+    ) {
+        this.modelName = modelName;
+        this.modelVersion = modelVersion;
+        this.statusIndex = statusIndex;
+        this.filingStateIndex = filingStateIndex;
+        this.numericOffset = numericOffset;
+        this.nFeatures = nFeatures;
+        this.init = init;
+        this.learningRate = learningRate;
+        this.treeRoots = treeRoots;
+        this.feature = feature;
+        this.threshold = threshold;
+        this.left = left;
+        this.right = right;
+        this.value = value;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the export is not a gbrt-v1 model with the expected feature layout
+     */
+    public static EmbeddedEtaModel fromExport(JsonNode root) {
+        if (!FORMAT.equals(root.path("format").asText())) {
+            throw new IllegalArgumentException("Unsupported model export format: " + root.path("format").asText());
+        }
+
+        JsonNode categorical = root.path("categorical");
+        if (categorical.size() != 2
+            || !"status".equals(categorical.get(0).path("name").asText())
+            || !"filing_state".equals(categorical.get(1).path("name").asText())) {
+            throw new IllegalArgumentException("Unexpected categorical features in model export");
+        }
+        if (!List.of("expected_amount", "dow", "month").equals(textList(root.path("numeric")))) {
+            throw new IllegalArgumentException("Unexpected numeric features in model export");
+        }
+
+        Map<String, Integer> statusIndex = categoryIndex(categorical.get(0).path("categories"), 0);
+        Map<String, Integer> filingStateIndex = categoryIndex(categorical.get(1).path("categories"), statusIndex.size());
+        int numericOffset = statusIndex.size() + filingStateIndex.size();
+        int nFeatures = root.path("nFeatures").asInt();
+        if (nFeatures != numericOffset + 3) {
+            throw new IllegalArgumentException("Feature count mismatch in model export");
+        }
+
+        JsonNode trees = root.path("trees");
+        int totalNodes = 0;
+        for (JsonNode t : trees) totalNodes += t.path("value").size();
+
+        int[] treeRoots = new int[trees.size()];
+        int[] feature = new int[totalNodes];
+        double[] threshold = new double[totalNodes];
+        int[] left = new int[totalNodes];
+        int[] right = new int[totalNodes];
+        double[] value = new double[totalNodes];
+
+        int base = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            JsonNode tree = trees.get(t);
+            int n = tree.path("value").size();
+            treeRoots[t] = base;
+            for (int i = 0; i < n; i++) {
+                int l = tree.path("left").get(i).asInt();
+                int r = tree.path("right").get(i).asInt();
+                int f = tree.path("feature").get(i).asInt();
+                if (l >= 0 && (f < 0 || f >= nFeatures || l >= n || r < 0 || r >= n)) {
+                    throw new IllegalArgumentException("Corrupt tree " + t + " at node " + i);
+                }
+                feature[base + i] = f;
+                threshold[base + i] = tree.path("threshold").get(i).asDouble();
+                left[base + i] = l < 0 ? -1 : base + l;
+                right[base + i] = r < 0 ? -1 : base + r;
+                value[base + i] = tree.path("value").get(i).asDouble();
+            }
+            base += n;
+        }
+
+        return new EmbeddedEtaModel(
+            root.path("modelName").asText("gbrt"),
+            root.path("modelVersion").asText("unknown"),
+            statusIndex, filingStateIndex, numericOffset, nFeatures,
+            root.path("init").asDouble(), root.path("learningRate").asDouble(),
+            treeRoots, feature, threshold, left, right, value
+        );
+    }
+
+    public String modelName() { return modelName; }
+    public String modelVersion() { return modelVersion; }
+
+    /**
+     * Same features and rounding as ml/app.py predict_rows (dow/month from "now" in UTC).
+     */
+    public MlEtaClient.PredictResponse predict(MlEtaClient.PredictRequest req, Instant now) {
+        ZonedDateTime utc = now.atZone(ZoneOffset.UTC);
+        String filingState = req.filingState() == null ? "NA" : req.filingState().toUpperCase(Locale.ROOT);
+        double expected = req.expectedAmount() == null ? 0.0 : req.expectedAmount().doubleValue();
+        int dow = utc.getDayOfWeek().getValue() - 1; // Python weekday(): Monday = 0
+        int month = utc.getMonthValue();
+
+        double[] x = new double[nFeatures];
+        Integer s = statusIndex.get(req.status());
+        if (s != null) x[s] = 1.0;
+        Integer fs = filingStateIndex.get(filingState);
+        if (fs != null) x[fs] = 1.0;
+        x[numericOffset] = expected;
+        x[numericOffset + 1] = dow;
+        x[numericOffset + 2] = month;
+
+        int etaDays = (int) Math.max(0, Math.min(MAX_ETA_DAYS, Math.rint(evaluate(x))));
+
+        String featuresJson = "{\"status\":" + jsonString(req.status())
+            + ",\"filing_state\":" + jsonString(filingState)
+            + ",\"expected_amount\":" + BigDecimal.valueOf(expected).toPlainString()
+            + ",\"dow\":" + dow
+            + ",\"month\":" + month + "}";
+
+        return new MlEtaClient.PredictResponse(etaDays, modelName, modelVersion, featuresJson);
+    }
+
+    double evaluate(double[] x) {
+        double sum = 0.0;
+        for (int root : treeRoots) {
+            int node = root;
+            while (left[node] >= 0) {
+                // sklearn trees compare on float32 inputs
+                node = (float) x[feature[node]] <= threshold[node] ? left[node] : right[node];
+            }
+            sum += value[node];
+        }
+        return init + learningRate * sum;
+    }
+
+    private static Map<String, Integer> categoryIndex(JsonNode categories, int offset) {
+        Map<String, Integer> index = new HashMap<>();
+        int i = offset;
+        for (JsonNode c : categories) {
+            index.put(c.asText(), i++);
+        }
+        return Map.copyOf(index);
+    }
+
+    private static List<String> textList(JsonNode array) {
+        List<String> out = new ArrayList<>();
+        for (Iterator<JsonNode> it = array.elements(); it.hasNext(); ) {
+            out.add(it.next().asText());
+        }
+        return out;
+    }
+
+    private static String jsonString(String s) {
+        if (s == null) return "null";
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+}
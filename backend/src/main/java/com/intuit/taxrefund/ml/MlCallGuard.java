@@ -0,0 +1,219 @@
+package com.intuit.taxrefund.ml;
+
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Protects callers from a slow or failing ML service:
+ * - circuit breaker: after failureThreshold consecutive failures, reject calls for openDuration, then let
+ *   a single half-open probe through; its outcome closes or re-opens the circuit
+ * - bulkhead: at most maxConcurrent calls in flight; callers wait up to bulkheadWait for a slot
+ * - adaptive timeout: per operation and batch-size bucket, p99 of recent successful latencies x
+ *   timeoutMultiplier, clamped to [minTimeout, maxTimeout] (maxTimeout until enough samples exist)
+ * Rejections and timeouts surface as MlUnavailableException.
+ */
+public class MlCallGuard {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+    private static final int RECOMPUTE_EVERY = 16;
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long bulkheadWaitNanos;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final double timeoutMultiplier;
+
+    private final Semaphore bulkhead;
+    private final ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    // breaker state, guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public MlCallGuard(MlProps.Resilience cfg) {
+        this.failureThreshold = cfg.failureThreshold();
+        this.openNanos = cfg.openDuration().toNanos();
+        this.bulkheadWaitNanos = cfg.bulkheadWait().toNanos();
+        this.minTimeoutNanos = cfg.minTimeout().toNanos();
+        this.maxTimeoutNanos = cfg.maxTimeout().toNanos();
+        this.timeoutMultiplier = cfg.timeoutMultiplier();
+        this.bulkhead = new Semaphore(cfg.maxConcurrent());
+    }
+
+    public <T> T call(String operation, Callable<T> fn) {
+        return call(operation, 1, fn);
+    }
+
+    /**
+     * @param items batch size; latency is learned per size bucket so a full backlog batch is not held
+     *              to the timeout learned from small interactive ones
+     */
+    public <T> T call(String operation, int items, Callable<T> fn) {
+        if (!tryAcquirePermission()) {
+            throw new MlUnavailableException("ML circuit open");
+        }
+
+        boolean slot;
+        try {
+            slot = bulkhead.tryAcquire(bulkheadWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            slot = false;
+        }
+        if (!slot) {
+            releaseProbe();
+            throw new MlUnavailableException("ML bulkhead full");
+        }
+
+        // The slot is held until the call itself ends: a timed-out request may still be running, and
+        // releasing early would let more than maxConcurrent calls reach the service.
+        // Whoever flips `started` first owns the release: the task (runs fn, releases when done) or a
+        // canceller that got there before it ran.
+        AtomicBoolean started = new AtomicBoolean();
+        Future<T> f;
+        try {
+            f = calls.submit(() -> {
+                if (!started.compareAndSet(false, true)) return null;
+                try {
+                    return fn.call();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            releaseProbe();
+            throw e;
+        }
+
+        LatencyWindow window = latencies.computeIfAbsent(operation + "#" + sizeBucket(items), k -> new LatencyWindow());
+        long timeout = window.timeoutNanos();
+        long start = System.nanoTime();
+        try {
+            T result = f.get(timeout, TimeUnit.NANOSECONDS);
+            window.record(System.nanoTime() - start);
+            onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            cancel(f, started);
+            onFailure();
+            throw new MlUnavailableException("ML " + operation + " timed out after " + Duration.ofNanos(timeout).toMillis() + "ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (countsAsFailure(cause)) onFailure(); else onSuccess();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            cancel(f, started);
+            releaseProbe();
+            Thread.currentThread().interrupt();
+            throw new MlUnavailableException("Interrupted waiting for ML " + operation);
+        }
+    }
+
+    private void cancel(Future<?> f, AtomicBoolean started) {
+        f.cancel(true);
+        if (started.compareAndSet(false, true)) {
+            // never ran, so the task will not release its slot
+            bulkhead.release();
+        }
+    }
+
+    // 1, 2-4, 5-16, 17-64, 65+ items
+    static int sizeBucket(int items) {
+        int bucket = 0;
+        for (int n = Math.max(1, items) - 1; n > 0 && bucket < 4; n >>= 2) bucket++;
+        return bucket;
+    }
+
+    /**
+     * @return false while the circuit is open and not yet due for a probe (cheap pre-check for pollers)
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.nanoTime() - openedAt >= openNanos;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (probeInFlight) yield false;
+                probeInFlight = true;
+                yield true;
+            }
+        };
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        state = State.CLOSED;
+    }
+
+    private synchronized void onFailure() {
+        probeInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    // The service answered: 4xx is our request, ModelNotReady is a healthy service without a model
+    private static boolean countsAsFailure(Throwable t) {
+        return !(t instanceof HttpClientErrorException || t instanceof ModelNotReadyException);
+    }
+
+    private final class LatencyWindow {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private volatile long timeoutNanos = maxTimeoutNanos;
+
+        long timeoutNanos() {
+            return timeoutNanos;
+        }
+
+        synchronized void record(long nanos) {
+            samples[count % WINDOW] = nanos;
+            count++;
+            if (count >= MIN_SAMPLES && count % RECOMPUTE_EVERY == 0) {
+                long[] sorted = Arrays.copyOf(samples, Math.min(count, WINDOW));
+                Arrays.sort(sorted);
+                long p99 = sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+                long t = (long) (p99 * timeoutMultiplier);
+                timeoutNanos = Math.max(minTimeoutNanos, Math.min(maxTimeoutNanos, t));
+            }
+        }
+    }
+}
@@ -2,11 +2,25 @@ package com.intuit.taxrefund.ml;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.springframework.http.HttpRequest;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestClient;
 
 import java.math.BigDecimal;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Component
@@ -14,20 +28,140 @@ public class MlEtaClient {
 
     private final RestClient rest;
     private final ObjectMapper om;
+    private final MlProps props;
+    private final MlCallGuard guard;
+
+    // ml.mode=embedded: current in-process model, swapped atomically on reload
+    private volatile EmbeddedEtaModel embeddedModel;
+    private volatile String embeddedSource;
+
+    // ml.mode=http: last known /model/info, so version checks do not cost a round trip
+    private volatile ModelInfo cachedModelInfo;
 
     public MlEtaClient(MlProps props, ObjectMapper om) {
+        // maxTimeout is the hard cap; MlCallGuard applies the tighter adaptive timeout per call
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(
+            HttpClient.newBuilder().connectTimeout(props.resilience().connectTimeout()).build());
+        requestFactory.setReadTimeout(props.resilience().maxTimeout());
+
         this.rest = RestClient.builder()
             .baseUrl(props.baseUrl())
+            .requestFactory(requestFactory)
             .build();
         this.om = om;
+        this.props = props;
+        this.guard = new MlCallGuard(props.resilience());
+    }
+
+    /**
+     * @return false while the ML circuit is open, so pollers can leave work queued instead of claiming it
+     */
+    public boolean isCallPermitted() {
+        return props.embedded() || guard.isCallPermitted();
+    }
+
+    @PostConstruct
+    void loadEmbeddedModel() {
+        reloadEmbeddedModel();
+    }
+
+    /**
+     * Reloads the embedded model when its source changed (file mtime, or the version reported by
+     * /model/info). On any failure the previously loaded model keeps serving.
+     */
+    @Scheduled(fixedDelayString = "${ml.reloadInterval:PT1M}")
+    public void reloadEmbeddedModel() {
+        if (!props.embedded()) return;
+        try {
+            String source = embeddedSourceVersion();
+            if (source == null || source.equals(embeddedSource)) return;
+
+            String raw = hasModelPath()
+                ? Files.readString(Path.of(props.modelPath()))
+                : guard.call("export", () -> rest.get().uri("/model/export").retrieve().body(String.class));
+
+            embeddedModel = EmbeddedEtaModel.fromExport(om.readTree(raw));
+            embeddedSource = source;
+        } catch (Exception ignore) {
+            // retried on the next tick
+        }
+    }
+
+    private String embeddedSourceVersion() throws Exception {
+        if (hasModelPath()) {
+            Path path = Path.of(props.modelPath());
+            return Files.exists(path) ? "file:" + Files.getLastModifiedTime(path).toMillis() : null;
+        }
+        String version = modelInfo().modelVersion();
+        return "unavailable".equals(version) || "untrained".equals(version) ? null : "version:" + version;
+    }
+
+    private boolean hasModelPath() {
+        return props.modelPath() != null && !props.modelPath().isBlank();
+    }
+
+    private EmbeddedEtaModel requireEmbeddedModel() {
+        EmbeddedEtaModel model = embeddedModel;
+        if (model == null) {
+            throw new ModelNotReadyException("Model not trained yet (embedded model not loaded)");
+        }
+        return model;
+    }
+
+    // ml/app.py answers 503 "Model not trained yet" until /train has run
+    private static void throwModelNotReady(HttpRequest request, ClientHttpResponse response) throws IOException {
+        byte[] body = response.getBody().readAllBytes();
+        String text = new String(body, StandardCharsets.UTF_8);
+        if (text.contains("Model not trained")) {
+            throw new ModelNotReadyException(text);
+        }
+        throw HttpServerErrorException.create(
+            response.getStatusCode(), response.getStatusText(), response.getHeaders(), body, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Version new predictions would carry, or null if unknown (no model / ML not reached yet).
+     * Served from memory; see {@link #refreshModelInfo()}.
+     */
+    public String currentModelVersion() {
+        if (props.embedded()) {
+            EmbeddedEtaModel model = embeddedModel;
+            return model == null ? null : model.modelVersion();
+        }
+        ModelInfo info = cachedModelInfo;
+        if (info == null) return null;
+        return switch (info.modelVersion()) {
+            case "unknown", "unavailable", "untrained" -> null;
+            default -> info.modelVersion();
+        };
+    }
+
+    /**
+     * Re-reads /model/info on the version-check schedule; predictions reporting a different
+     * version update the cache in between (a retrain is seen on the next prediction).
+     */
+    @Scheduled(fixedDelayString = "${ml.reloadInterval:PT1M}")
+    public void refreshModelInfo() {
+        if (props.embedded()) return;
+        ModelInfo info = modelInfo();
+        if (!"unavailable".equals(info.modelVersion())) {
+            cachedModelInfo = info;
+        }
+    }
+
+    private void noteModelVersion(PredictResponse pred) {
+        ModelInfo info = cachedModelInfo;
+        if (info == null || !info.modelVersion().equals(pred.modelVersion())) {
+            cachedModelInfo = new ModelInfo(pred.modelName(), pred.modelVersion());
+        }
     }
 
     public ModelInfo modelInfo() {
         try {
-            String raw = rest.get()
+            String raw = guard.call("modelInfo", () -> rest.get()
                 .uri("/model/info")
                 .retrieve()
-                .body(String.class);
+                .body(String.class));
 
             JsonNode n = om.readTree(raw);
             return new ModelInfo(
@@ -40,6 +174,11 @@ public class MlEtaClient {
     }
 
     public PredictResponse predict(Long userId, int taxYear, String status, String filingState, BigDecimal expectedAmount) {
+        if (props.embedded()) {
+            return requireEmbeddedModel().predict(
+                new PredictRequest(userId, taxYear, status, filingState, expectedAmount), Instant.now());
+        }
+
         Map<String, Object> body = Map.of(
             "userId", userId,
             "taxYear", taxYear,
@@ -48,28 +187,78 @@ public class MlEtaClient {
             "expectedAmount", expectedAmount
         );
 
-        String raw = rest.post()
+        String raw = guard.call("predict", () -> rest.post()
             .uri("/predict")
             .contentType(MediaType.APPLICATION_JSON)
             .body(body)
             .retrieve()
-            .body(String.class);
+            .onStatus(code -> code.value() == 503, MlEtaClient::throwModelNotReady)
+            .body(String.class));
 
+        PredictResponse pred;
         try {
-            JsonNode n = om.readTree(raw);
-            int etaDays = n.path("etaDays").asInt();
-            String modelName = n.path("modelName").asText("unknown");
-            String modelVersion = n.path("modelVersion").asText("unknown");
-            JsonNode features = n.path("features");
+            pred = parsePrediction(om.readTree(raw));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to parse ML response: " + e.getMessage(), e);
+        }
+        noteModelVersion(pred);
+        return pred;
+    }
 
-            String featuresJson = features.isMissingNode() ? "{}" : om.writeValueAsString(features);
+    /**
+     * One round trip for many predictions (backlog drains).
+     * @return predictions in the same order as the requests
+     */
+    public List<PredictResponse> predictBatch(List<PredictRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+
+        if (props.embedded()) {
+            EmbeddedEtaModel model = requireEmbeddedModel();
+            Instant now = Instant.now();
+            List<PredictResponse> out = new ArrayList<>(requests.size());
+            for (PredictRequest req : requests) {
+                out.add(model.predict(req, now));
+            }
+            return out;
+        }
 
-            return new PredictResponse(etaDays, modelName, modelVersion, featuresJson);
+        String raw = guard.call("predictBatch", requests.size(), () -> rest.post()
+            .uri("/predict/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(Map.of("items", requests))
+            .retrieve()
+            .onStatus(code -> code.value() == 503, MlEtaClient::throwModelNotReady)
+            .body(String.class));
+
+        List<PredictResponse> out = new ArrayList<>(requests.size());
+        try {
+            for (JsonNode n : om.readTree(raw).path("predictions")) {
+                out.add(parsePrediction(n));
+            }
         } catch (Exception e) {
-            throw new IllegalStateException("Failed to parse ML response: " + e.getMessage(), e);
+            throw new IllegalStateException("Failed to parse ML batch response: " + e.getMessage(), e);
+        }
+        if (out.size() != requests.size()) {
+            throw new IllegalStateException("ML batch returned " + out.size() + " predictions for " + requests.size() + " requests");
         }
+        noteModelVersion(out.get(0));
+        return out;
+    }
+
+    private PredictResponse parsePrediction(JsonNode n) throws Exception {
+        int etaDays = n.path("etaDays").asInt();
+        String modelName = n.path("modelName").asText("unknown");
+        String modelVersion = n.path("modelVersion").asText("unknown");
+        JsonNode features = n.path("features");
+
+        String featuresJson = features.isMissingNode() ? "{}" : om.writeValueAsString(features);
+
+        return new PredictResponse(etaDays, modelName, modelVersion, featuresJson);
     }
 
+    public record PredictRequest(Long userId, int taxYear, String status, String filingState, BigDecimal expectedAmount) {}
     public record PredictResponse(int etaDays, String modelName, String modelVersion, String featuresJson) {}
     public record ModelInfo(String modelName, String modelVersion) {}
 }
\ No newline at end of file
@@ -2,5 +2,28 @@ package com.intuit.taxrefund.ml;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
+// mode: HTTP calls ml/app.py per batch; EMBEDDED evaluates the exported trees in-process
+// modelPath: exported model file (blank = fetch from baseUrl /model/export); reloadInterval: version check period
 @ConfigurationProperties(prefix = "ml")
-public record MlProps(String baseUrl) {}
\ No newline at end of file
+public record MlProps(String baseUrl, Mode mode, String modelPath, Duration reloadInterval, Resilience resilience) {
+
+    public enum Mode { HTTP, EMBEDDED }
+
+    // See MlCallGuard
+    public record Resilience(
+        int failureThreshold,
+        Duration openDuration,
+        int maxConcurrent,
+        Duration bulkheadWait,
+        Duration connectTimeout,
+        Duration minTimeout,
+        Duration maxTimeout,
+        double timeoutMultiplier
+    ) {}
+
+    public boolean embedded() {
+        return mode == Mode.EMBEDDED;
+    }
+}
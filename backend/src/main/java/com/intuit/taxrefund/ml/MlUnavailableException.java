@@ -0,0 +1,12 @@
+package com.intuit.taxrefund.ml;
+
+/**
+ * The ML service was not called (circuit open, bulkhead full) or did not answer in time.
+ * Callers should defer the work rather than count it as a failed attempt.
+ */
+public class MlUnavailableException extends RuntimeException {
+
+    public MlUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.intuit.taxrefund.ml;
+
+/**
+ * No trained model yet (ML service 503 "Model not trained", or no embedded model loaded).
+ * Not a service failure: the breaker ignores it and the outbox does not retry.
+ */
+public class ModelNotReadyException extends RuntimeException {
+
+    public ModelNotReadyException(String message) {
+        super(message);
+    }
+}
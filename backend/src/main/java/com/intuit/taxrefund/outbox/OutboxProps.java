@@ -0,0 +1,31 @@
+package com.intuit.taxrefund.outbox;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// batchSize: rows claimed per poll; leaseDuration: how long a claim is held before another worker may retake it
+// concurrency: aggregates handled in parallel per node (each holds a DB connection while handling)
+// listen: wake the worker on Postgres NOTIFY instead of waiting for the next poll
+// mlBatchSize: max events per /predict/batch call (one transaction each)
+// backoffBase/backoffMax: retry delay after the n-th failure ~ min(backoffMax, backoffBase * 2^(n-1)), jittered
+// maxDeferredAge: deferrals (ML unavailable) do not count as attempts; an event still deferred this long after
+//   it was created is dead-lettered instead of retrying forever
+@ConfigurationProperties(prefix = "outbox")
+public record OutboxProps(
+    int batchSize,
+    Duration leaseDuration,
+    int maxAttempts,
+    int concurrency,
+    boolean listen,
+    int mlBatchSize,
+    Duration backoffBase,
+    Duration backoffMax,
+    Duration maxDeferredAge,
+    Retention retention
+) {
+    // maxAge: partitions whose whole day is older are dropped (or detached when archive=true) once fully processed
+    // premakeDays: daily partitions created ahead so inserts never hit a missing range
+    // lockTimeout: partition DDL gives up (and retries next run) rather than queue in front of inserts and claims
+    public record Retention(Duration maxAge, int premakeDays, boolean archive, Duration lockTimeout) {}
+}
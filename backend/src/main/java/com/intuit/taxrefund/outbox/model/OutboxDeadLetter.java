@@ -0,0 +1,72 @@
+package com.intuit.taxrefund.outbox.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+
+// Outbox event that exhausted its attempts; kept for inspection / manual replay
+@Entity
+@Table(
+    name = "outbox_dead_letter",
+    indexes = {
+        @Index(name = "ix_outbox_dead_letter_time", columnList = "dead_at")
+    }
+)
+public class OutboxDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "outbox_event_id")
+    private Long outboxEventId;
+
+    @Column(nullable = false, name = "event_type", length = 80)
+    private String eventType;
+
+    @Column(nullable = false, name = "aggregate_key", length = 120)
+    private String aggregateKey;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(nullable = false, columnDefinition = "jsonb")
+    private String payload;
+
+    @Column(nullable = false, name = "created_at")
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "last_error")
+    private String lastError;
+
+    @Column(nullable = false, name = "dead_at")
+    private Instant deadAt;
+
+    protected OutboxDeadLetter() {}
+
+    public static OutboxDeadLetter of(OutboxEvent evt) {
+        OutboxDeadLetter d = new OutboxDeadLetter();
+        d.outboxEventId = evt.getId();
+        d.eventType = evt.getEventType();
+        d.aggregateKey = evt.getAggregateKey();
+        d.payload = evt.getPayload();
+        d.createdAt = evt.getCreatedAt();
+        d.attempts = evt.getAttempts();
+        d.lastError = evt.getLastError();
+        d.deadAt = Instant.now();
+        return d;
+    }
+
+    public Long getId() { return id; }
+    public Long getOutboxEventId() { return outboxEventId; }
+    public String getEventType() { return eventType; }
+    public String getAggregateKey() { return aggregateKey; }
+    public String getPayload() { return payload; }
+    public Instant getCreatedAt() { return createdAt; }
+    public int getAttempts() { return attempts; }
+    public String getLastError() { return lastError; }
+    public Instant getDeadAt() { return deadAt; }
+}
@@ -10,10 +10,11 @@ import java.time.Instant;
 @Table(
     name = "outbox_event",
     indexes = {
-        @Index(name = "ix_outbox_created", columnList = "created_at"),
-        @Index(name = "ix_outbox_unprocessed", columnList = "processed_at")
+        @Index(name = "ix_outbox_runnable", columnList = "next_attempt_at"),
+        @Index(name = "ix_outbox_aggregate_pending", columnList = "aggregate_key,created_at")
     }
 )
+// Range-partitioned by created_at (daily, see V8 + OutboxRetentionJob); PK is (id, created_at) in the DB
 public class OutboxEvent {
 
     @Id
@@ -42,6 +43,15 @@ public class OutboxEvent {
     @Column(name = "last_error")
     private String lastError;
 
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "locked_by", length = 80)
+    private String lockedBy;
+
+    @Column(nullable = false, name = "next_attempt_at")
+    private Instant nextAttemptAt = Instant.now();
+
     protected OutboxEvent() {}
 
     private OutboxEvent(String eventType, String aggregateKey, String payload) {
@@ -49,6 +59,7 @@ public class OutboxEvent {
         this.aggregateKey = aggregateKey;
         this.payload = payload;
         this.createdAt = Instant.now();
+        this.nextAttemptAt = this.createdAt;
     }
 
     public static OutboxEvent newEvent(String eventType, String aggregateKey, String payload) {
@@ -64,6 +75,24 @@ public class OutboxEvent {
         this.lastError = err;
     }
 
+    // Not attempted (dependency unavailable): record why, without counting towards maxAttempts
+    public void defer(String reason) {
+        this.lastError = reason;
+    }
+
+    public void retryAt(Instant when) {
+        this.nextAttemptAt = when;
+    }
+
+    public boolean isClaimedBy(String worker) {
+        return worker.equals(lockedBy) && lockedUntil != null && lockedUntil.isAfter(Instant.now());
+    }
+
+    public void releaseClaim() {
+        this.lockedBy = null;
+        this.lockedUntil = null;
+    }
+
     public Long getId() { return id; }
     public String getEventType() { return eventType; }
     public String getAggregateKey() { return aggregateKey; }
@@ -72,4 +101,7 @@ public class OutboxEvent {
     public Instant getProcessedAt() { return processedAt; }
     public int getAttempts() { return attempts; }
     public String getLastError() { return lastError; }
+    public Instant getLockedUntil() { return lockedUntil; }
+    public String getLockedBy() { return lockedBy; }
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.intuit.taxrefund.outbox.repo;
+
+import com.intuit.taxrefund.outbox.model.OutboxDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface OutboxDeadLetterRepository extends JpaRepository<OutboxDeadLetter, Long> {
+}
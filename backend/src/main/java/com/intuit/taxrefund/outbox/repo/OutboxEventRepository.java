@@ -3,7 +3,10 @@ package com.intuit.taxrefund.outbox.repo;
 import com.intuit.taxrefund.outbox.model.OutboxEvent;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
@@ -15,10 +18,76 @@ public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long>
     """)
     List<OutboxEvent> findUnprocessed();
 
-    @Query("""
-        select e from OutboxEvent e
-        where e.processedAt is null and e.attempts < :maxAttempts
-        order by e.createdAt asc
-    """)
-    List<OutboxEvent> findUnprocessedWithAttemptsLessThan(int maxAttempts);
-}
\ No newline at end of file
+
+    // Claimed row: enough to group by aggregate and order within it
+    interface ClaimedEvent {
+        Long getId();
+        String getAggregateKey();
+        Instant getCreatedAt();
+    }
+
+    /**
+     * Step 1 of a claim: takes a transaction-scoped advisory lock on up to batchSize aggregates that have
+     * runnable, unleased rows (oldest first) and returns the ones it got. A concurrent claimer holding an
+     * aggregate's lock is skipped rather than waited on. Must run in the claiming transaction, before
+     * {@link #claimBatch}: the lock is released at its commit, so the next claimer of that aggregate starts
+     * step 2 with a snapshot that already shows these leases.
+     */
+    @Query(value = """
+        select k.aggregate_key from (
+            select o.aggregate_key, min(o.created_at) as first_at
+            from outbox_event o
+            where o.processed_at is null
+              and o.attempts < :maxAttempts
+              and o.next_attempt_at <= now()
+              and (o.locked_until is null or o.locked_until < now())
+            group by o.aggregate_key
+            order by first_at
+            limit :batchSize
+        ) k
+        where pg_try_advisory_xact_lock(hashtext(k.aggregate_key))
+    """, nativeQuery = true)
+    List<String> lockClaimableAggregates(@Param("maxAttempts") int maxAttempts, @Param("batchSize") int batchSize);
+
+    /**
+     * Step 2 of a claim: leases up to batchSize claimable rows of the aggregates locked in step 1 to one worker.
+     * SKIP LOCKED lets concurrent pollers (other replicas) take disjoint batches instead of
+     * blocking on or double-processing the same rows; an expired lease makes a row claimable again.
+     * Only rows whose next_attempt_at has passed are runnable (failed rows back off).
+     * A row is not claimable while an earlier pending row of the same aggregate is leased or backing off;
+     * with the aggregate lock that check sees every committed lease, so events of one aggregate are never
+     * handled out of order, even across replicas.
+     */
+    @Query(value = """
+        with claimable as (
+            select o.id from outbox_event o
+            where o.aggregate_key in (:aggregateKeys)
+              and o.processed_at is null
+              and o.attempts < :maxAttempts
+              and o.next_attempt_at <= now()
+              and (o.locked_until is null or o.locked_until < now())
+              and not exists (
+                  select 1 from outbox_event p
+                  where p.aggregate_key = o.aggregate_key
+                    and p.processed_at is null
+                    and p.created_at < o.created_at
+                    and (p.locked_until >= now() or p.next_attempt_at > now())
+              )
+            order by o.created_at asc
+            limit :batchSize
+            for update skip locked
+        )
+        update outbox_event e
+        set locked_by = :worker, locked_until = :lockedUntil
+        from claimable c
+        where e.id = c.id
+        returning e.id as id, e.aggregate_key as aggregateKey, e.created_at as createdAt
+    """, nativeQuery = true)
+    List<ClaimedEvent> claimBatch(
+        @Param("aggregateKeys") Collection<String> aggregateKeys,
+        @Param("worker") String worker,
+        @Param("lockedUntil") Instant lockedUntil,
+        @Param("maxAttempts") int maxAttempts,
+        @Param("batchSize") int batchSize
+    );
+}
@@ -5,11 +5,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
 import com.intuit.taxrefund.ai.repo.RefundEtaPredictionRepository;
 import com.intuit.taxrefund.ml.MlEtaClient;
+import com.intuit.taxrefund.ml.MlUnavailableException;
+import com.intuit.taxrefund.ml.ModelNotReadyException;
 import com.intuit.taxrefund.outbox.model.OutboxEvent;
+import com.intuit.taxrefund.refund.service.RefundCacheWriter;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 public class OutboxEventHandler {
@@ -19,20 +33,149 @@ public class OutboxEventHandler {
     private final RefundEtaPredictionRepository etaRepo;
     private final MlEtaClient ml;
     private final ObjectMapper om;
-
-    public OutboxEventHandler(RefundEtaPredictionRepository etaRepo, MlEtaClient ml, ObjectMapper om) {
+    private final RefundCacheWriter cacheWriter;
+    private final TransactionTemplate transactions;
+
+    public OutboxEventHandler(
+        RefundEtaPredictionRepository etaRepo,
+        MlEtaClient ml,
+        ObjectMapper om,
+        RefundCacheWriter cacheWriter,
+        PlatformTransactionManager transactionManager
+    ) {
         this.etaRepo = etaRepo;
         this.ml = ml;
         this.om = om;
+        this.cacheWriter = cacheWriter;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Handles many events with one ML round trip and one bulk insert.
+     * Returns an outcome for every event; failures are reported, not thrown (database errors excepted).
+     * Not transactional: the ML call holds no connection. The existence check is one query and the
+     * bulk insert its own short transaction (see OutboxWorkerTx#processBatch for the bookkeeping).
+     */
+    public Map<OutboxEvent, OutboxOutcome> handleBatch(List<OutboxEvent> events) {
+        Map<OutboxEvent, OutboxOutcome> outcomes = new LinkedHashMap<>();
+        Map<OutboxEvent, MlEtaClient.PredictRequest> pending = new LinkedHashMap<>();
+        // New status goes into the cache even if the ML call below fails; once per user, at the end
+        Set<Long> touched = new LinkedHashSet<>();
+        for (OutboxEvent evt : events) {
+            if (!"REFUND_STATUS_UPDATED".equals(evt.getEventType())) {
+                outcomes.put(evt, OutboxOutcome.HANDLED);
+                continue;
+            }
+            MlEtaClient.PredictRequest req;
+            try {
+                req = toPredictRequest(om.readTree(evt.getPayload()));
+            } catch (Exception e) {
+                // bad payload fails only its own event
+                outcomes.put(evt, OutboxOutcome.failed(e));
+                continue;
+            }
+            pending.put(evt, req);
+            touched.add(req.userId());
+        }
+
+        skipAlreadyPredicted(pending, outcomes);
+        if (pending.isEmpty()) {
+            return writeThrough(touched, outcomes);
+        }
+
+        // a burst of identical status changes needs one prediction
+        Map<String, MlEtaClient.PredictRequest> distinct = new LinkedHashMap<>();
+        for (MlEtaClient.PredictRequest req : pending.values()) {
+            distinct.putIfAbsent(key(req.userId(), req.taxYear(), req.status()), req);
+        }
+        List<MlEtaClient.PredictRequest> requests = new ArrayList<>(distinct.values());
+        List<MlEtaClient.PredictResponse> preds;
+        try {
+            preds = ml.predictBatch(requests);
+        } catch (ModelNotReadyException e) {
+            return writeThrough(touched, complete(outcomes, pending.keySet(), OutboxOutcome.modelNotReady(e.getMessage())));
+        } catch (MlUnavailableException e) {
+            return writeThrough(touched, complete(outcomes, pending.keySet(), OutboxOutcome.deferred(e.getMessage())));
+        } catch (RuntimeException e) {
+            return writeThrough(touched, complete(outcomes, pending.keySet(), OutboxOutcome.failed(e)));
+        }
+
+        Instant now = Instant.now();
+        List<RefundEtaPrediction> rows = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            MlEtaClient.PredictRequest req = requests.get(i);
+            MlEtaClient.PredictResponse pred = preds.get(i);
+
+            rows.add(new RefundEtaPrediction(
+                req.userId(),
+                req.taxYear(),
+                req.status(),
+                pred.etaDays(),
+                now.plusSeconds((long) pred.etaDays() * SECONDS_IN_DAY),
+                pred.modelName(),
+                pred.modelVersion(),
+                pred.featuresJson()
+            ));
+        }
+
+        // rows raced in by another worker are skipped by the insert, not reported as errors
+        transactions.executeWithoutResult(status -> etaRepo.insertIgnoringDuplicates(rows));
+
+        // ...with the new ETAs
+        return writeThrough(touched, complete(outcomes, pending.keySet(), OutboxOutcome.HANDLED));
     }
 
-    public void handle(OutboxEvent evt) throws Exception {
-        if (!"REFUND_STATUS_UPDATED".equals(evt.getEventType())) {
-            return;
+    // Outside any transaction each call rebuilds right away
+    private Map<OutboxEvent, OutboxOutcome> writeThrough(Set<Long> userIds, Map<OutboxEvent, OutboxOutcome> outcomes) {
+        userIds.forEach(cacheWriter::writeThrough);
+        return outcomes;
+    }
+
+    // Replayed events: one indexed lookup instead of an ML call whose insert would be a no-op
+    private void skipAlreadyPredicted(
+        Map<OutboxEvent, MlEtaClient.PredictRequest> pending,
+        Map<OutboxEvent, OutboxOutcome> outcomes
+    ) {
+        if (pending.isEmpty()) return;
+        String modelVersion = ml.currentModelVersion();
+        if (modelVersion == null) return;
+
+        Set<Long> userIds = new HashSet<>();
+        pending.values().forEach(req -> userIds.add(req.userId()));
+
+        Set<String> existing = new HashSet<>();
+        for (RefundEtaPredictionRepository.PredictionKey k : etaRepo.findByModelVersionAndUserIdIn(modelVersion, userIds)) {
+            existing.add(key(k.getUserId(), k.getTaxYear(), k.getStatus()));
         }
+        if (existing.isEmpty()) return;
+
+        Iterator<Map.Entry<OutboxEvent, MlEtaClient.PredictRequest>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<OutboxEvent, MlEtaClient.PredictRequest> e = it.next();
+            MlEtaClient.PredictRequest req = e.getValue();
+            if (existing.contains(key(req.userId(), req.taxYear(), req.status()))) {
+                outcomes.put(e.getKey(), OutboxOutcome.ALREADY_DONE);
+                it.remove();
+            }
+        }
+    }
 
-        JsonNode payload = om.readTree(evt.getPayload());
+    private static String key(Long userId, int taxYear, String status) {
+        return userId + ":" + taxYear + ":" + status;
+    }
 
+    private static Map<OutboxEvent, OutboxOutcome> complete(
+        Map<OutboxEvent, OutboxOutcome> outcomes,
+        Collection<OutboxEvent> events,
+        OutboxOutcome outcome
+    ) {
+        for (OutboxEvent evt : events) {
+            outcomes.put(evt, outcome);
+        }
+        return outcomes;
+    }
+
+    private static MlEtaClient.PredictRequest toPredictRequest(JsonNode payload) {
         Long userId = payload.path("userId").asLong();
         int taxYear = payload.path("taxYear").asInt();
         String status = payload.path("status").asText();
@@ -45,26 +188,6 @@ public class OutboxEventHandler {
 
         String filingState = payload.path("filingState").asText("NA");
 
-        MlEtaClient.PredictResponse pred = ml.predict(userId, taxYear, status, filingState, expectedAmount);
-
-        if (etaRepo.existsByUserIdAndTaxYearAndStatusAndModelVersion(userId, taxYear, status, pred.modelVersion())) {
-            // idempotency: already have this model's prediction for this status
-            return;
-        }
-
-        Instant estimatedAvailableAt = Instant.now().plusSeconds((long) pred.etaDays() * SECONDS_IN_DAY);
-
-        RefundEtaPrediction row = new RefundEtaPrediction(
-            userId,
-            taxYear,
-            status,
-            pred.etaDays(),
-            estimatedAvailableAt,
-            pred.modelName(),
-            pred.modelVersion(),
-            pred.featuresJson()
-        );
-
-        etaRepo.save(row);
+        return new MlEtaClient.PredictRequest(userId, taxYear, status, filingState, expectedAmount);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,27 @@
+package com.intuit.taxrefund.outbox.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Signals "new outbox rows" to OutboxNotifyListener on every node via Postgres NOTIFY.
+ */
+@Component
+public class OutboxNotifier {
+
+    public static final String CHANNEL = "outbox_event";
+
+    private final JdbcTemplate jdbc;
+
+    public OutboxNotifier(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Call in the transaction that inserts the outbox row. Postgres only delivers the notification
+     * once that transaction commits (dropped on rollback) and folds duplicates within it.
+     */
+    public void notifyInserted() {
+        jdbc.execute("select pg_notify('" + CHANNEL + "', '')");
+    }
+}
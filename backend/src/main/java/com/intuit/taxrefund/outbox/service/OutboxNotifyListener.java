@@ -0,0 +1,95 @@
+package com.intuit.taxrefund.outbox.service;
+
+import com.intuit.taxrefund.outbox.OutboxProps;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Holds a dedicated (non-pooled) connection on LISTEN outbox_event and wakes the OutboxWorker as
+ * soon as a committed insert is announced. The worker's scheduled poll remains as a slow fallback
+ * for lost connections and notifications.
+ */
+@Component
+public class OutboxNotifyListener {
+
+    private static final int WAIT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final DataSourceProperties dataSource;
+    private final OutboxWorker worker;
+    private final boolean enabled;
+
+    private volatile boolean running;
+    private volatile Connection connection;
+    private Thread thread;
+
+    public OutboxNotifyListener(DataSourceProperties dataSource, OutboxWorker worker, OutboxProps props) {
+        this.dataSource = dataSource;
+        this.worker = worker;
+        this.enabled = props.listen();
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) return;
+        running = true;
+        thread = Thread.ofPlatform().name("outbox-listen").daemon().start(this::listenLoop);
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(
+                dataSource.determineUrl(), dataSource.determineUsername(), dataSource.determinePassword())) {
+                connection = conn;
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + OutboxNotifier.CHANNEL);
+                }
+                // anything committed while we were not listening
+                worker.wakeUp();
+
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(WAIT_MS);
+                    if (notifications != null && notifications.length > 0) {
+                        worker.wakeUp();
+                    }
+                }
+            } catch (SQLException e) {
+                // DB restart / network blip: fallback polling covers the gap until we reconnect
+                if (!running) return;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        Connection conn = connection;
+        if (conn != null) {
+            try {
+                conn.close();
+            } catch (SQLException ignore) {
+                // shutting down
+            }
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
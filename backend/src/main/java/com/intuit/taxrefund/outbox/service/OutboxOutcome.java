@@ -0,0 +1,31 @@
+package com.intuit.taxrefund.outbox.service;
+
+/**
+ * Result of handling one outbox event; the worker decides retry / finish from {@link Kind}
+ * instead of inspecting exception messages.
+ */
+public record OutboxOutcome(Kind kind, String detail) {
+
+    public enum Kind {
+        HANDLED,          // prediction written
+        ALREADY_DONE,     // prediction for the current model version already existed
+        MODEL_NOT_READY,  // no trained model: nothing to predict with, do not retry
+        DEFERRED,         // ML unavailable (breaker/bulkhead/timeout): retry soon, attempts untouched
+        FAILED            // retry with backoff, dead-letter at the attempt cap
+    }
+
+    public static final OutboxOutcome HANDLED = new OutboxOutcome(Kind.HANDLED, null);
+    public static final OutboxOutcome ALREADY_DONE = new OutboxOutcome(Kind.ALREADY_DONE, null);
+
+    public static OutboxOutcome modelNotReady(String detail) {
+        return new OutboxOutcome(Kind.MODEL_NOT_READY, detail);
+    }
+
+    public static OutboxOutcome deferred(String detail) {
+        return new OutboxOutcome(Kind.DEFERRED, detail);
+    }
+
+    public static OutboxOutcome failed(Throwable e) {
+        return new OutboxOutcome(Kind.FAILED, e.getMessage() == null ? e.toString() : e.getMessage());
+    }
+}
@@ -0,0 +1,129 @@
+package com.intuit.taxrefund.outbox.service;
+
+import com.intuit.taxrefund.outbox.OutboxProps;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Maintains the daily partitions of outbox_event (see V8, V12):
+ * - creates partitions premakeDays ahead
+ * - detaches partitions older than maxAge that hold no pending rows, and drops them unless archiving
+ * Runs once at startup and then every interval.
+ * DDL runs with lock_timeout so it never queues in front of inserts and claims for long, and detaching is
+ * CONCURRENTLY (no ACCESS EXCLUSIVE lock on outbox_event); outside a transaction, as that requires.
+ * Safe to run on every node: DDL races and lock timeouts are ignored and retried on the next run.
+ */
+@Component
+public class OutboxRetentionJob {
+
+    static final String PREFIX = "outbox_event_p";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbc;
+    private final OutboxProps.Retention props;
+
+    // detachPending: an earlier CONCURRENTLY detach was interrupted and must be finalized
+    record Partition(String name, boolean detachPending) {}
+
+    public OutboxRetentionJob(JdbcTemplate jdbc, OutboxProps props) {
+        this.jdbc = jdbc;
+        this.props = props.retention();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.retention.interval:PT1H}")
+    public void run() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        premake(today);
+        expire(today);
+    }
+
+    void premake(LocalDate today) {
+        for (int i = 0; i <= props.premakeDays(); i++) {
+            LocalDate day = today.plusDays(i);
+            try {
+                ddl("create table if not exists " + partitionName(day)
+                    + " partition of outbox_event for values from ('" + day + " 00:00:00+00') to ('"
+                    + day.plusDays(1) + " 00:00:00+00')");
+            } catch (DataAccessException ignore) {
+                // another node created it concurrently, or the lock was busy
+            }
+        }
+    }
+
+    void expire(LocalDate today) {
+        LocalDate cutoff = today.minusDays(props.maxAge().toDays());
+        List<Partition> partitions = jdbc.query("""
+            select c.relname, i.inhdetachpending from pg_inherits i
+            join pg_class c on c.oid = i.inhrelid
+            where i.inhparent = 'outbox_event'::regclass
+            """, (rs, n) -> new Partition(rs.getString(1), rs.getBoolean(2)));
+
+        for (Partition partition : partitions) {
+            LocalDate day = partitionDay(partition.name());
+            // the whole day must be past the cutoff
+            if (day == null || day.plusDays(1).isAfter(cutoff)) {
+                continue;
+            }
+            try {
+                if (partition.detachPending()) {
+                    ddl("alter table outbox_event detach partition " + partition.name() + " finalize");
+                } else {
+                    if (hasPending(partition.name())) continue;
+                    ddl("alter table outbox_event detach partition " + partition.name() + " concurrently");
+                }
+                if (!props.archive()) {
+                    // detached: no longer touches outbox_event's locks
+                    ddl("drop table " + partition.name());
+                }
+            } catch (DataAccessException ignore) {
+                // another node got there first, or the lock was busy
+            }
+        }
+    }
+
+    // One autocommit statement on one connection, bounded by lock_timeout
+    private void ddl(String sql) {
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute("set lock_timeout = " + props.lockTimeout().toMillis());
+                try {
+                    st.execute(sql);
+                } finally {
+                    st.execute("reset lock_timeout");
+                }
+            }
+            return null;
+        });
+    }
+
+    // Unprocessed rows (e.g. still backing off) keep their partition alive until done or dead-lettered
+    private boolean hasPending(String partition) {
+        Boolean pending = jdbc.queryForObject(
+            "select exists (select 1 from " + partition + " where processed_at is null)", Boolean.class);
+        return Boolean.TRUE.equals(pending);
+    }
+
+    static String partitionName(LocalDate day) {
+        return PREFIX + DAY.format(day);
+    }
+
+    // null for tables that do not follow the naming scheme (left alone)
+    static LocalDate partitionDay(String partition) {
+        if (!partition.startsWith(PREFIX)) return null;
+        try {
+            return LocalDate.parse(partition.substring(PREFIX.length()), DAY);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -1,32 +1,151 @@
 package com.intuit.taxrefund.outbox.service;
 
-import com.intuit.taxrefund.outbox.model.OutboxEvent;
-import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
+import com.intuit.taxrefund.ml.MlEtaClient;
+import com.intuit.taxrefund.outbox.OutboxProps;
+import com.intuit.taxrefund.outbox.repo.OutboxEventRepository.ClaimedEvent;
+import jakarta.annotation.PreDestroy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 @Component
 public class OutboxWorker {
 
-    private final OutboxEventRepository outboxRepo;
+    // Identifies this replica's claims in outbox_event.locked_by
+    private final String workerId = "outbox-" + UUID.randomUUID();
+
     private final OutboxWorkerTx tx;
+    private final MlEtaClient ml;
+
+    // Handling is dominated by the blocking ML call: a virtual thread per chunk, bounded by permits
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int concurrency;
+    private final int mlBatchSize;
+
+    // One poll at a time per node; at most one wake-up queued behind it
+    private final ReentrantLock polling = new ReentrantLock();
+    private final AtomicBoolean wakeQueued = new AtomicBoolean();
 
-    public OutboxWorker(OutboxEventRepository outboxRepo, OutboxWorkerTx tx) {
-        this.outboxRepo = outboxRepo;
+    public OutboxWorker(OutboxWorkerTx tx, MlEtaClient ml, OutboxProps props) {
         this.tx = tx;
+        this.ml = ml;
+        this.permits = new Semaphore(props.concurrency());
+        this.concurrency = props.concurrency();
+        this.mlBatchSize = props.mlBatchSize();
+    }
+
+    // Fallback only: new rows normally arrive via wakeUp() (OutboxNotifyListener).
+    // The drain runs on our own executor so a backlog never holds the shared scheduling thread.
+    @Scheduled(fixedDelayString = "${outbox.pollInterval:PT1M}")
+    public void scheduledPoll() {
+        wakeUp();
     }
 
-    @Scheduled(fixedDelayString = "PT5S")
     public void poll() {
-        // Demo-simple batch. Production: use SKIP LOCKED + LIMIT.
-        List<OutboxEvent> batch = outboxRepo.findUnprocessedWithAttemptsLessThan(20);
-        if (batch.isEmpty()) return;
+        polling.lock();
+        try {
+            // Drain: keep claiming bounded batches while there is backlog
+            List<ClaimedEvent> batch;
+            do {
+                // ML circuit open: leave events unclaimed instead of leasing work that is doomed to fail
+                if (!ml.isCallPermitted()) return;
+                batch = tx.claimBatch(workerId);
+                if (!processConcurrently(batch)) return;
+            } while (!batch.isEmpty());
+        } finally {
+            polling.unlock();
+        }
+    }
+
+    /**
+     * Poll now, off the caller's thread. If a poll is already running, one more is queued after it
+     * so rows committed after its last claim are not left for the fallback poll.
+     */
+    public void wakeUp() {
+        if (wakeQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                wakeQueued.set(false);
+                poll();
+            });
+        }
+    }
+
+    /**
+     * Packs whole aggregates (userId:taxYear, events in created_at order) into chunks of up to
+     * mlBatchSize events, spread over the concurrency limit. Chunks run in parallel; each is one
+     * transaction and one ML batch call, so events of one aggregate never overtake each other.
+     *
+     * @return false if interrupted
+     */
+    boolean processConcurrently(List<ClaimedEvent> batch) {
+        Map<String, List<Long>> byAggregate = batch.stream()
+            .sorted(Comparator.comparing(ClaimedEvent::getCreatedAt).thenComparing(ClaimedEvent::getId))
+            .collect(Collectors.groupingBy(
+                ClaimedEvent::getAggregateKey,
+                LinkedHashMap::new,
+                Collectors.mapping(ClaimedEvent::getId, Collectors.toList())
+            ));
 
-        for (OutboxEvent evt : batch) {
-            // Each event handled in its own transaction
-            tx.processOne(evt.getId());
+        int chunkSize = Math.max(1, Math.min(mlBatchSize, ceilDiv(batch.size(), concurrency)));
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> current = new ArrayList<>();
+        for (List<Long> ids : byAggregate.values()) {
+            if (!current.isEmpty() && current.size() + ids.size() > chunkSize) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+            current.addAll(ids);
         }
+        if (!current.isEmpty()) chunks.add(current);
+
+        List<Future<?>> running = new ArrayList<>(chunks.size());
+        for (List<Long> ids : chunks) {
+            running.add(executor.submit(() -> processChunk(ids)));
+        }
+
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (ExecutionException ignore) {
+                // unexpected failure (e.g. DB rollback); the rows stay leased and are retried after the lease expires
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void processChunk(List<Long> ids) {
+        permits.acquireUninterruptibly();
+        try {
+            tx.processBatch(ids, workerId);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
     }
-}
\ No newline at end of file
+}
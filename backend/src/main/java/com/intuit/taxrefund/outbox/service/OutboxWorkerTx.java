@@ -1,47 +1,150 @@
 package com.intuit.taxrefund.outbox.service;
 
+import com.intuit.taxrefund.outbox.OutboxProps;
+import com.intuit.taxrefund.outbox.model.OutboxDeadLetter;
 import com.intuit.taxrefund.outbox.model.OutboxEvent;
+import com.intuit.taxrefund.outbox.repo.OutboxDeadLetterRepository;
 import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 public class OutboxWorkerTx {
 
     private final OutboxEventRepository outboxRepo;
+    private final OutboxDeadLetterRepository deadLetterRepo;
     private final OutboxEventHandler handler;
+    private final OutboxProps props;
+    private final TransactionTemplate transactions;
 
-    public OutboxWorkerTx(OutboxEventRepository outboxRepo, OutboxEventHandler handler) {
+    public OutboxWorkerTx(
+        OutboxEventRepository outboxRepo,
+        OutboxDeadLetterRepository deadLetterRepo,
+        OutboxEventHandler handler,
+        OutboxProps props,
+        PlatformTransactionManager transactionManager
+    ) {
         this.outboxRepo = outboxRepo;
+        this.deadLetterRepo = deadLetterRepo;
         this.handler = handler;
+        this.props = props;
+        this.transactions = new TransactionTemplate(transactionManager);
     }
 
+    // Short transaction: row and aggregate locks are held only while stamping the lease, not while handling.
+    // Two statements on purpose: the second one's snapshot is taken after the aggregate locks are held.
     @Transactional
-    public void processOne(Long outboxEventId) {
-        OutboxEvent evt = outboxRepo.findById(outboxEventId).orElse(null);
-        if (evt == null) return;
+    public List<OutboxEventRepository.ClaimedEvent> claimBatch(String workerId) {
+        List<String> aggregates = outboxRepo.lockClaimableAggregates(props.maxAttempts(), props.batchSize());
+        if (aggregates.isEmpty()) return List.of();
+        return outboxRepo.claimBatch(
+            aggregates,
+            workerId,
+            Instant.now().plus(props.leaseDuration()),
+            props.maxAttempts(),
+            props.batchSize()
+        );
+    }
 
-        // If someone else processed it already
-        if (evt.getProcessedAt() != null) return;
+    /**
+     * Handles a chunk of claimed events (whole aggregates, in order) with one ML round trip; the chunk
+     * succeeds or is retried as a unit, so per-aggregate order holds.
+     * The handler commits its own insert (the ML call runs outside any transaction) and the outcomes are
+     * recorded in a separate transaction, so a database error while handling (which aborts the Postgres
+     * transaction) still gets its attempt, backoff or dead letter recorded. A retry after the handler
+     * committed is harmless: predictions are inserted ignoring duplicates.
+     */
+    public void processBatch(List<Long> outboxEventIds, String workerId) {
+        Map<Long, OutboxEvent> byId = outboxRepo.findAllById(outboxEventIds).stream()
+            .collect(Collectors.toMap(OutboxEvent::getId, Function.identity()));
 
+        List<OutboxEvent> batch = new ArrayList<>(outboxEventIds.size());
+        for (Long id : outboxEventIds) {
+            OutboxEvent evt = byId.get(id);
+            // Skip if processed by someone else already, or our lease expired and another worker took it
+            if (evt != null && evt.getProcessedAt() == null && evt.isClaimedBy(workerId)) {
+                batch.add(evt);
+            }
+        }
+        if (batch.isEmpty()) return;
+
+        OutboxOutcome missing = new OutboxOutcome(OutboxOutcome.Kind.FAILED, "No outcome from handler");
+
+        Map<OutboxEvent, OutboxOutcome> outcomes;
         try {
-            handler.handle(evt);
-            evt.markProcessed();
-        } catch (Exception e) {
-            String msg = e.getMessage() == null ? e.toString() : e.getMessage();
-
-            // Duplicate prediction insert: treat as success (idempotent)
-            if (msg.contains("already exists") || msg.contains("unique constraint") || msg.contains("duplicate key")) {
-                evt.bumpAttempt(msg);
-                evt.markProcessed();
-            } else if (msg.contains("Model not trained yet")) {
-                evt.bumpAttempt(msg);
-                evt.markProcessed();
-            } else {
-                evt.bumpAttempt(msg);
+            outcomes = handler.handleBatch(batch);
+        } catch (RuntimeException e) {
+            // unexpected (e.g. database error, rolled back): the whole chunk failed
+            outcomes = Map.of();
+            missing = OutboxOutcome.failed(e);
+        }
+
+        Map<OutboxEvent, OutboxOutcome> handled = outcomes;
+        OutboxOutcome fallback = missing;
+        transactions.executeWithoutResult(status -> recordOutcomes(batch, handled, fallback));
+    }
+
+    private void recordOutcomes(List<OutboxEvent> batch, Map<OutboxEvent, OutboxOutcome> outcomes, OutboxOutcome missing) {
+        List<OutboxEvent> dead = new ArrayList<>();
+        for (OutboxEvent evt : batch) {
+            OutboxOutcome outcome = outcomes.getOrDefault(evt, missing);
+            switch (outcome.kind()) {
+                case HANDLED, ALREADY_DONE -> evt.markProcessed();
+                case MODEL_NOT_READY -> {
+                    // nothing to predict with; record why and move on
+                    evt.bumpAttempt(outcome.detail());
+                    evt.markProcessed();
+                }
+                case DEFERRED -> {
+                    // circuit open / bulkhead full / timed out: short fixed delay, attempts untouched,
+                    // but bounded by age so an event the ML keeps timing out on cannot retry forever
+                    evt.defer(outcome.detail());
+                    if (evt.getCreatedAt().plus(props.maxDeferredAge()).isBefore(Instant.now())) {
+                        dead.add(evt);
+                    } else {
+                        evt.retryAt(Instant.now().plus(props.backoffBase()));
+                    }
+                }
+                case FAILED -> {
+                    evt.bumpAttempt(outcome.detail());
+                    if (evt.getAttempts() >= props.maxAttempts()) {
+                        dead.add(evt);
+                    } else {
+                        evt.retryAt(Instant.now().plus(backoff(evt.getAttempts())));
+                    }
+                }
             }
+            evt.releaseClaim();
         }
 
-        outboxRepo.save(evt);
+        if (!dead.isEmpty()) {
+            // poison events leave the hot table
+            deadLetterRepo.saveAll(dead.stream().map(OutboxDeadLetter::of).toList());
+            outboxRepo.deleteAll(dead);
+            batch.removeAll(dead);
+        }
+
+        outboxRepo.saveAll(batch);
+    }
+
+    // Exponential with "equal jitter": half fixed, half random, so retries of a failed batch spread out
+    Duration backoff(int attempts) {
+        long base = props.backoffBase().toMillis();
+        long max = props.backoffMax().toMillis();
+        long exp = base << Math.min(attempts - 1, 30);
+        long capped = exp <= 0 ? max : Math.min(max, exp);
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(half + 1));
     }
-}
\ No newline at end of file
+}
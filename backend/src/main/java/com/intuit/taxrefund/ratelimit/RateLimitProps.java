@@ -2,11 +2,19 @@ package com.intuit.taxrefund.ratelimit;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "app.ratelimit")
 public record RateLimitProps(
     boolean enabled,
     Policy refundLatest,
-    Policy assistantChat
+    Policy assistantChat,
+    Lease lease
 ) {
     public record Policy(int capacity, int refillPerMinute) {}
-}
\ No newline at end of file
+
+    // fraction: share of a policy's capacity a node takes from Redis per round trip and admits locally
+    // minChunk: lease at least this many (small policies would otherwise round down to per-request checks)
+    // ttl: leased tokens not used within this are handed back to Redis (bounds how far a node can run ahead of the global count)
+    public record Lease(double fraction, int minChunk, Duration ttl) {}
+}
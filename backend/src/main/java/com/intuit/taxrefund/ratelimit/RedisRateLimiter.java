@@ -1,23 +1,45 @@
 package com.intuit.taxrefund.ratelimit;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
-
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket per key, kept in Redis so all nodes share one limit, with local pre-admission:
+ * a node leases a chunk of tokens per round trip (app.ratelimit.lease) and admits from it without
+ * touching Redis; a denial is remembered until the next token is due. The global limit is exact up
+ * to the leased-but-unused tokens per node; after lease.ttl those are handed back to Redis with the
+ * key's next round trip, so a sparse caller is not charged for tokens it never used.
+ */
 @Component
 public class RedisRateLimiter {
 
+    private static final Duration BUCKET_TTL = Duration.ofMinutes(10);
+
     private final StringRedisTemplate redis;
+    private final RateLimitProps.Lease lease;
 
+    // Takes back ARGV[6] unused tokens from an expired lease, then grants up to ARGV[4] tokens (a lease),
+    // but only if at least ARGV[5] (the request) are available. Tokens go back as a string: an integer
+    // reply would truncate the fraction and overstate the wait after a denial.
     private static final String LUA = """
         local key = KEYS[1]
         local now = tonumber(ARGV[1])
         local capacity = tonumber(ARGV[2])
         local refillRate = tonumber(ARGV[3])
-        local requested = tonumber(ARGV[4])
+        local wanted = tonumber(ARGV[4])
+        local requested = tonumber(ARGV[5])
+        local returned = tonumber(ARGV[6])
 
         local data = redis.call('HMGET', key, 'tokens', 'ts')
         local tokens = tonumber(data[1])
@@ -28,21 +50,21 @@ public class RedisRateLimiter {
 
         local delta = math.max(0, now - ts)
         local refill = delta * refillRate
-        tokens = math.min(capacity, tokens + refill)
+        tokens = math.min(capacity, tokens + refill + returned)
 
-        local allowed = 0
+        local granted = 0
         if tokens >= requested then
-          allowed = 1
-          tokens = tokens - requested
+          granted = math.max(requested, math.min(wanted, math.floor(tokens)))
+          tokens = tokens - granted
         end
 
         redis.call('HMSET', key, 'tokens', tokens, 'ts', now)
-        redis.call('PEXPIRE', key, 10 * 60 * 1000)
+        redis.call('PEXPIRE', key, tonumber(ARGV[7]))
 
-        return {allowed, tokens}
+        return {granted, tostring(tokens)}
     """;
 
-    // Tell Spring the script returns a 2-element list
+    // Tell Spring the script returns a 2-element list; executed as EVALSHA (EVAL only after a NOSCRIPT)
     private static final DefaultRedisScript<List> SCRIPT;
     static {
         SCRIPT = new DefaultRedisScript<>();
@@ -50,34 +72,122 @@ public class RedisRateLimiter {
         SCRIPT.setResultType(List.class);
     }
 
-    public RedisRateLimiter(StringRedisTemplate redis) {
+    // Tokens this node has leased per key; kept as long as the Redis key lives so an expired lease can
+    // still be handed back (past that the Redis bucket starts over full anyway)
+    private final Cache<String, LocalBucket> local;
+
+    private static final class LocalBucket {
+        final ReentrantLock lock = new ReentrantLock();
+        int tokens;
+        long expiresAt;
+        long deniedUntil;
+    }
+
+    public RedisRateLimiter(StringRedisTemplate redis, RateLimitProps props) {
         this.redis = redis;
+        this.lease = props.lease();
+        this.local = Caffeine.newBuilder()
+            .expireAfterAccess(BUCKET_TTL)
+            .maximumSize(100_000)
+            .build();
+    }
+
+    // SCRIPT LOAD up front so the first EVALSHA does not have to fall back to shipping the script
+    @PostConstruct
+    void preloadScript() {
+        try {
+            redis.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(LUA.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception ignore) {
+            // Redis not up yet: the first EVALSHA gets NOSCRIPT and loads it
+        }
     }
 
     public Result tryConsume(String key, int capacity, int refillPerMinute, int tokens) {
-        long now = Instant.now().toEpochMilli();
         double refillPerMillis = refillPerMinute / 60000.0;
+        int chunk = chunkSize(capacity, refillPerMillis);
+        if (chunk <= tokens) {
+            // nothing to lease beyond this request: plain per-request check, no local state
+            return remote(key, Instant.now().toEpochMilli(), capacity, refillPerMillis, tokens, tokens, 0);
+        }
 
-        @SuppressWarnings("unchecked")
-        List<Object> resp = (List<Object>) redis.execute(
-            SCRIPT,
-            List.of(key),
-            String.valueOf(now),
-            String.valueOf(capacity),
-            String.valueOf(refillPerMillis),
-            String.valueOf(tokens)
-        );
-
-        // Defensive: null if Redis down or script failed
-        if (resp == null || resp.size() < 2) {
-            return new Result(true, capacity); // or fail-closed if you prefer
+        LocalBucket bucket = local.get(key, k -> new LocalBucket());
+
+        // One lease round trip per key at a time; concurrent requests then admit from what it brought back
+        bucket.lock.lock();
+        try {
+            long now = Instant.now().toEpochMilli();
+            boolean expired = bucket.expiresAt <= now;
+            if (!expired && bucket.tokens >= tokens) {
+                bucket.tokens -= tokens;
+                return new Result(true, bucket.tokens);
+            }
+            if (bucket.deniedUntil > now) {
+                return new Result(false, expired ? 0 : bucket.tokens);
+            }
+
+            // an expired lease's leftovers ride along with this round trip back into the shared bucket
+            int returned = expired ? bucket.tokens : 0;
+            bucket.tokens -= returned;
+            List<Object> resp = lease(key, now, capacity, refillPerMillis, chunk, tokens, returned);
+
+            // Defensive: null if Redis down or script failed
+            if (resp == null || resp.size() < 2) {
+                return new Result(true, capacity); // or fail-closed if you prefer
+            }
+
+            int granted = Integer.parseInt(resp.get(0).toString());
+            double remaining = Double.parseDouble(resp.get(1).toString());
+
+            if (granted < tokens) {
+                // Empty everywhere: answer locally until the exact deficit has refilled (never longer than a lease)
+                long wait = refillPerMillis > 0 ? (long) Math.ceil((tokens - remaining) / refillPerMillis) : Long.MAX_VALUE;
+                bucket.deniedUntil = now + Math.min(wait, lease.ttl().toMillis());
+                return new Result(false, remaining + bucket.tokens);
+            }
+
+            bucket.tokens += granted - tokens;
+            bucket.expiresAt = now + lease.ttl().toMillis();
+            bucket.deniedUntil = 0;
+            return new Result(true, remaining + bucket.tokens);
+        } finally {
+            bucket.lock.unlock();
         }
+    }
+
+    // The larger of a share of capacity, the configured minimum and what refills within one lease; never above capacity
+    int chunkSize(int capacity, double refillPerMillis) {
+        int byCapacity = (int) Math.ceil(capacity * lease.fraction());
+        int byRefill = (int) Math.ceil(refillPerMillis * lease.ttl().toMillis());
+        return Math.min(capacity, Math.max(lease.minChunk(), Math.max(byCapacity, byRefill)));
+    }
 
-        int allowed = Integer.parseInt(resp.get(0).toString());
-        double remaining = Double.parseDouble(resp.get(1).toString());
+    private Result remote(String key, long now, int capacity, double refillPerMillis, int chunk, int tokens, int returned) {
+        List<Object> resp = lease(key, now, capacity, refillPerMillis, chunk, tokens, returned);
+        if (resp == null || resp.size() < 2) {
+            return new Result(true, capacity);
+        }
+        return new Result(Integer.parseInt(resp.get(0).toString()) >= tokens, Double.parseDouble(resp.get(1).toString()));
+    }
 
-        return new Result(allowed == 1, remaining);
+    @SuppressWarnings("unchecked")
+    private List<Object> lease(String key, long now, int capacity, double refillPerMillis, int chunk, int tokens, int returned) {
+        try {
+            return (List<Object>) redis.execute(
+                SCRIPT,
+                List.of(key),
+                String.valueOf(now),
+                String.valueOf(capacity),
+                String.valueOf(refillPerMillis),
+                String.valueOf(chunk),
+                String.valueOf(tokens),
+                String.valueOf(returned),
+                String.valueOf(BUCKET_TTL.toMillis())
+            );
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     public record Result(boolean allowed, double remainingTokens) {}
-}
\ No newline at end of file
+}
@@ -0,0 +1,19 @@
+package com.intuit.taxrefund.refund;
+
+import com.intuit.taxrefund.refund.service.BatchingIrsAdapter;
+import com.intuit.taxrefund.refund.service.IrsAdapter;
+import com.intuit.taxrefund.refund.service.MockIrsAdapter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class IrsConfig {
+
+    // Callers of IrsAdapter get the batching front; MockIrsAdapter itself stays injectable for /simulate
+    @Bean
+    @Primary
+    public IrsAdapter irsAdapter(MockIrsAdapter upstream, IrsProps props) {
+        return props.batching().enabled() ? new BatchingIrsAdapter(upstream, props.batching()) : upstream;
+    }
+}
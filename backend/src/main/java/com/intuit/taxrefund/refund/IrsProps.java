@@ -0,0 +1,13 @@
+package com.intuit.taxrefund.refund;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+// mockLatency: simulated round trip of one MockIrsAdapter call (single user or batch)
+@ConfigurationProperties(prefix = "irs")
+public record IrsProps(Duration mockLatency, Batching batching) {
+
+    // Concurrent single-user fetches within `window` go upstream as one call of at most maxBatchSize users
+    public record Batching(boolean enabled, Duration window, int maxBatchSize) {}
+}
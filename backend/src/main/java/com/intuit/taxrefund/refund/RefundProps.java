@@ -0,0 +1,55 @@
+package com.intuit.taxrefund.refund;
+
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+
+@ConfigurationProperties(prefix = "refund")
+public record RefundProps(
+    Cache cache,
+    Refresh refresh,
+    Stream stream,
+    Projection projection,
+    Polling polling
+) {
+    // softTtl: serve cached value but rebuild it in the background; hardTtl: Redis expiry, readers block on a load
+    // leaseTtl: how long one node may rebuild refund:latest:{userId} before others stop waiting for it
+    public record Cache(Duration softTtl, Duration hardTtl, Near near, Duration leaseTtl, Duration leasePollInterval) {}
+
+    // In-process L1 in front of Redis; bounded by estimated retained bytes
+    public record Near(long maxWeightBytes, Duration ttl) {}
+
+    // staleAfter: how old a persisted record may get before a read schedules a background IRS refresh
+    public record Refresh(Duration staleAfter) {}
+
+    // timeout: lifetime of one /api/refund/stream connection (the client reconnects); heartbeat: keep-alive period
+    public record Stream(Duration timeout, Duration heartbeat) {}
+
+    // rebuildConcurrency: users replayed in parallel when refund_record is rebuilt from refund_status_event
+    public record Projection(int rebuildConcurrency) {}
+
+    // Proactive IRS refresh: records are re-polled cadence[status] after each poll; unlisted statuses never
+    public record Polling(boolean enabled, int batchSize, Map<RefundStatus, Duration> cadence, Queue queue) {
+        public Polling {
+            cadence = cadence == null ? Map.of() : Map.copyOf(cadence);
+        }
+
+        // null = terminal, stop polling
+        public Instant nextPollAt(RefundStatus status, Instant now) {
+            Duration every = cadence.get(status);
+            return every == null ? null : now.plus(every);
+        }
+    }
+
+    // Priority among due records in the shared poll queue (score = due time): users seen in the last
+    // hotInterval jump ahead by hotBoost (never due sooner), demoted statuses fall back by demotePenalty
+    public record Queue(Duration hotBoost, Duration hotInterval, Duration demotePenalty, Set<RefundStatus> demoted) {
+        public Queue {
+            demoted = demoted == null ? Set.of() : Set.copyOf(demoted);
+        }
+    }
+}
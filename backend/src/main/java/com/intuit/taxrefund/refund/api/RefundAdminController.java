@@ -0,0 +1,47 @@
+package com.intuit.taxrefund.refund.api;
+
+import com.intuit.taxrefund.refund.api.dto.BulkRefundStatusRequest;
+import com.intuit.taxrefund.refund.api.dto.BulkRefundStatusResponse;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.service.RefundProjectionRebuilder;
+import com.intuit.taxrefund.refund.service.RefundService;
+import jakarta.validation.Valid;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Support / partner dashboards (ADMIN only, see SecurityConfig)
+@RestController
+@RequestMapping("/api/admin/refund")
+public class RefundAdminController {
+    private final RefundService refundService;
+    private final RefundProjectionRebuilder projectionRebuilder;
+
+    public RefundAdminController(RefundService refundService, RefundProjectionRebuilder projectionRebuilder) {
+        this.refundService = refundService;
+        this.projectionRebuilder = projectionRebuilder;
+    }
+
+    @PostMapping("/status/bulk")
+    public BulkRefundStatusResponse bulkStatus(@Valid @RequestBody BulkRefundStatusRequest req) {
+        List<RefundStatusResponse> found = refundService.getRefundStatuses(req.keys());
+
+        List<BulkRefundStatusResponse.Item> items = new ArrayList<>(found.size());
+        for (int i = 0; i < found.size(); i++) {
+            BulkRefundStatusRequest.Key key = req.keys().get(i);
+            items.add(new BulkRefundStatusResponse.Item(key.userId(), key.taxYear(), found.get(i)));
+        }
+        return new BulkRefundStatusResponse(items);
+    }
+
+    // Re-derive refund_record from refund_status_event (full=true ignores each snapshot's lastEventId)
+    @PostMapping("/projection/rebuild")
+    public RefundProjectionRebuilder.Result rebuildProjection(@RequestParam(defaultValue = "false") boolean full) {
+        return projectionRebuilder.rebuildAll(full);
+    }
+}
@@ -3,31 +3,77 @@ package com.intuit.taxrefund.refund.api;
 import com.intuit.taxrefund.auth.jwt.JwtService;
 import com.intuit.taxrefund.refund.api.dto.RefundStatusInternalUpdateRequest;
 import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.cache.CachedRefundStatus;
 import com.intuit.taxrefund.refund.service.IrsAdapter;
 import com.intuit.taxrefund.refund.service.MockIrsAdapter;
+import com.intuit.taxrefund.refund.service.RefundRefreshService;
 import com.intuit.taxrefund.refund.service.RefundService;
+import com.intuit.taxrefund.refund.stream.RefundUpdateStream;
 import jakarta.validation.Valid;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/api/refund")
 public class RefundController {
+    // browsers keep the body and revalidate with If-None-Match (Spring Security's default is no-store)
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     private final RefundService refundService;
+    private final RefundRefreshService refundRefresher;
     private final MockIrsAdapter mockIrs;
-    private final StringRedisTemplate redis;
+    private final RefundUpdateStream updates;
 
-    public RefundController(RefundService refundService, MockIrsAdapter mockIrs, StringRedisTemplate redis) {
+    public RefundController(
+        RefundService refundService,
+        RefundRefreshService refundRefresher,
+        MockIrsAdapter mockIrs,
+        RefundUpdateStream updates
+    ) {
         this.refundService = refundService;
+        this.refundRefresher = refundRefresher;
         this.mockIrs = mockIrs;
-        this.redis = redis;
+        this.updates = updates;
     }
 
     @GetMapping("/latest")
-    public RefundStatusResponse latest(Authentication auth) {
+    public ResponseEntity<RefundStatusResponse> latest(
+        Authentication auth,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         JwtService.JwtPrincipal principal = (JwtService.JwtPrincipal) auth.getPrincipal();
-        return refundService.getLatestRefundStatus(principal);
+
+        // 304 straight from the ETag stored with the cached value: nothing decoded or serialized
+        String etag = refundService.matchingCachedEtag(principal, ifNoneMatch);
+        if (etag != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+        }
+
+        // a matching If-None-Match on this path still gets a 304 (checked by Spring against the ETag header)
+        RefundStatusResponse resp = refundService.getLatestRefundStatus(principal);
+        return ResponseEntity.ok().eTag(CachedRefundStatus.etagOf(resp)).cacheControl(REVALIDATE).body(resp);
+    }
+
+    // Push instead of polling /latest: the current status first, then every status or ETA change
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication auth) {
+        JwtService.JwtPrincipal principal = (JwtService.JwtPrincipal) auth.getPrincipal();
+
+        // register before reading so a change committed in between is not missed
+        SseEmitter emitter = updates.open(principal.userId());
+        try {
+            updates.send(principal.userId(), emitter, refundService.getLatestRefundStatus(principal));
+        } catch (RuntimeException e) {
+            updates.close(principal.userId(), emitter);
+            throw e;
+        }
+        return emitter;
     }
 
     // Demo/testing endpoint to trigger a status change in the mock IRS adapter
@@ -41,7 +87,7 @@ public class RefundController {
             )
         );
 
-        // invalidate cached /latest response so UI sees change immediately
-        redis.delete("refund:latest:" + principal.userId());
+        // mock IRS push: reconcile through the write path (event + outbox, cache written through after commit)
+        refundRefresher.refresh(principal.userId());
     }
 }
@@ -0,0 +1,15 @@
+package com.intuit.taxrefund.refund.api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BulkRefundStatusRequest(
+    @NotEmpty @Size(max = 500) List<@Valid @NotNull Key> keys
+) {
+    // taxYear null = the user's most recent refund
+    public record Key(@NotNull Long userId, Integer taxYear) {}
+}
@@ -0,0 +1,9 @@
+package com.intuit.taxrefund.refund.api.dto;
+
+import java.util.List;
+
+public record BulkRefundStatusResponse(List<Item> items) {
+
+    // refund null = no refund on record (or from IRS) for this key
+    public record Item(Long userId, Integer taxYear, RefundStatusResponse refund) {}
+}
@@ -0,0 +1,49 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Cache envelope: the response plus when it was built, so readers can apply soft/hard TTLs,
+ * and its HTTP ETag, so conditional GETs can be answered without decoding the response.
+ */
+public record CachedRefundStatus(RefundStatusResponse response, Instant cachedAt, String etag) {
+
+    public CachedRefundStatus {
+        if (etag == null && response != null) {
+            etag = etagOf(response);
+        }
+    }
+
+    public CachedRefundStatus(RefundStatusResponse response, Instant cachedAt) {
+        this(response, cachedAt, null);
+    }
+
+    public static CachedRefundStatus now(RefundStatusResponse response) {
+        return new CachedRefundStatus(response, Instant.now());
+    }
+
+    public boolean isOlderThan(Duration age) {
+        return cachedAt.isBefore(Instant.now().minus(age));
+    }
+
+    /**
+     * Strong ETag over every response field, so a 304 never hides a change (amount/tracking edits included).
+     */
+    public static String etagOf(RefundStatusResponse r) {
+        String version = r.taxYear() + "|" + r.status() + "|" + r.lastUpdatedAt() + "|" + r.expectedAmount()
+            + "|" + r.trackingId() + "|" + r.availableAtEstimated() + "|" + r.aiExplanation();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(version.getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest, 0, 8) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.intuit.taxrefund.refund.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Short-lived cross-node lease (SET NX PX). Used to let a single node rebuild a cache entry
+ * while the others wait for it instead of stampeding IRS/Postgres.
+ */
+@Component
+public class RedisLease {
+
+    // Only the holder may release; an expired lease re-acquired by another node is left alone
+    private static final DefaultRedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+        if redis.call('GET', KEYS[1]) == ARGV[1] then
+          return redis.call('DEL', KEYS[1])
+        end
+        return 0
+    """, Long.class);
+
+    private final StringRedisTemplate redis;
+
+    public RedisLease(StringRedisTemplate redis) {
+        this.redis = redis;
+    }
+
+    /**
+     * @return holder token, or null if another node holds the lease
+     */
+    public String tryAcquire(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = redis.opsForValue().setIfAbsent(key, token, ttl);
+            return Boolean.TRUE.equals(acquired) ? token : null;
+        } catch (Exception e) {
+            // Redis unavailable: fail open, the caller loads locally
+            return token;
+        }
+    }
+
+    public void release(String key, String token) {
+        try {
+            redis.execute(RELEASE, List.of(key), token);
+        } catch (Exception ignore) {
+            // lease expires on its own
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.intuit.taxrefund.refund.RefundProps;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * When each user's refund was last reconciled with the IRS without finding a change.
+ * Kept out of refund_record so an unchanged fetch costs no UPDATE/WAL: buffered per node and
+ * flushed to Redis refund:checked:{userId} (epoch millis) in one pipelined batch.
+ * Losing it (Redis down, node crash) only makes records look stale sooner.
+ */
+@Component
+public class RefundCheckLog {
+
+    private final StringRedisTemplate redis;
+    // Past staleAfter the record is refreshed anyway, so older check times are useless
+    private final Duration ttl;
+    private final Map<Long, Instant> pending = new ConcurrentHashMap<>();
+
+    public RefundCheckLog(StringRedisTemplate redis, RefundProps props) {
+        this.redis = redis;
+        this.ttl = props.refresh().staleAfter();
+    }
+
+    public static String key(Long userId) {
+        return "refund:checked:" + userId;
+    }
+
+    public void markChecked(Long userId) {
+        pending.merge(userId, Instant.now(), (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    /**
+     * @return last unchanged check seen by this node or flushed by any node, or null if unknown
+     */
+    public Instant lastChecked(Long userId) {
+        Instant local = pending.get(userId);
+        if (local != null) {
+            return local;
+        }
+        try {
+            String millis = redis.opsForValue().get(key(userId));
+            return millis == null ? null : Instant.ofEpochMilli(Long.parseLong(millis));
+        } catch (Exception e) {
+            // Redis down or unreadable value -> fall back to the record's own timestamp
+            return null;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${refund.refresh.checkFlushInterval:PT1S}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<Long, Instant> batch = new HashMap<>(pending);
+        try {
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                batch.forEach((userId, checkedAt) -> connection.stringCommands().set(
+                    key(userId).getBytes(StandardCharsets.UTF_8),
+                    Long.toString(checkedAt.toEpochMilli()).getBytes(StandardCharsets.UTF_8),
+                    Expiration.from(ttl),
+                    SetOption.upsert()
+                ));
+                return null;
+            });
+        } catch (Exception ignore) {
+            // keep them buffered; the next flush retries
+            return;
+        }
+        // drop only what was written; a newer check that arrived meanwhile stays for the next flush
+        batch.forEach(pending::remove);
+    }
+}
@@ -0,0 +1,290 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Two-tier cache for /api/refund/latest responses:
+ * - L1: bounded, weight-limited in-process near cache (microsecond hits, no deserialization)
+ * - L2: Redis refund:latest:{userId} shared by all nodes, binary-encoded (RefundStatusCodec),
+ *   expiring at the hard TTL
+ * Changed writes and evictions are broadcast on a pub/sub channel so every other node drops its L1 copy.
+ */
+@Component
+public class RefundStatusCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "refund:cache:invalidate";
+
+    // SET ... PX that returns the value it replaced, so put can tell a change from a refill
+    private static final DefaultRedisScript<byte[]> SWAP = new DefaultRedisScript<>("""
+        local old = redis.call('GET', KEYS[1])
+        redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+        return old
+    """, byte[].class);
+
+    // Lets a node ignore its own invalidation broadcasts (message = "<nodeId>:<userId>")
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final RedisTemplate<String, byte[]> redis;
+    private final StringRedisTemplate pubsub;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final RefundStatusCodec codec;
+    private final Duration softTtl;
+    private final Duration hardTtl;
+    private final Cache<Long, CachedRefundStatus> near;
+
+    public RefundStatusCache(
+        RedisTemplate<String, byte[]> redis,
+        StringRedisTemplate pubsub,
+        RedisMessageListenerContainer listenerContainer,
+        RefundStatusCodec codec,
+        RefundProps props
+    ) {
+        this.redis = redis;
+        this.pubsub = pubsub;
+        this.listenerContainer = listenerContainer;
+        this.codec = codec;
+        this.softTtl = props.cache().softTtl();
+        this.hardTtl = props.cache().hardTtl();
+
+        RefundProps.Near cfg = props.cache().near();
+        this.near = Caffeine.newBuilder()
+            .maximumWeight(cfg.maxWeightBytes())
+            .weigher((Long userId, CachedRefundStatus entry) -> estimateBytes(entry.response()))
+            .expireAfterWrite(cfg.ttl())
+            .build();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public static String key(Long userId) {
+        return "refund:latest:" + userId;
+    }
+
+    /**
+     * @return cached entry younger than the hard TTL, or null on miss
+     */
+    public CachedRefundStatus get(Long userId) {
+        CachedRefundStatus local = near.getIfPresent(userId);
+        if (local != null && !local.isOlderThan(hardTtl)) {
+            return local;
+        }
+
+        byte[] raw;
+        try {
+            raw = redis.opsForValue().get(key(userId));
+        } catch (Exception e) {
+            // Redis down -> behave as a miss
+            return null;
+        }
+        return remember(userId, raw);
+    }
+
+    /**
+     * Bulk {@link #get}: near-cache hits, then a single MGET for the rest.
+     * @return the entries found; misses are absent
+     */
+    public Map<Long, CachedRefundStatus> getAll(Collection<Long> userIds) {
+        Map<Long, CachedRefundStatus> found = new HashMap<>();
+        List<Long> remote = new ArrayList<>();
+        for (Long userId : userIds) {
+            CachedRefundStatus local = near.getIfPresent(userId);
+            if (local != null && !local.isOlderThan(hardTtl)) {
+                found.put(userId, local);
+            } else {
+                remote.add(userId);
+            }
+        }
+        if (remote.isEmpty()) {
+            return found;
+        }
+
+        List<byte[]> values;
+        try {
+            values = redis.opsForValue().multiGet(remote.stream().map(RefundStatusCache::key).toList());
+        } catch (Exception e) {
+            return found;
+        }
+        if (values == null) {
+            return found;
+        }
+        for (int i = 0; i < remote.size(); i++) {
+            CachedRefundStatus entry = remember(remote.get(i), values.get(i));
+            if (entry != null) {
+                found.put(remote.get(i), entry);
+            }
+        }
+        return found;
+    }
+
+    // Decode a Redis value into the near cache (migrating older formats); null if absent or unreadable
+    private CachedRefundStatus remember(Long userId, byte[] raw) {
+        if (raw == null) {
+            return null;
+        }
+
+        RefundStatusCodec.Decoded decoded;
+        try {
+            decoded = codec.decode(raw);
+        } catch (IllegalArgumentException e) {
+            // corrupt value or a version this build does not know (e.g. after a rollback)
+            return null;
+        }
+
+        CachedRefundStatus entry = decoded.entry();
+        if (decoded.legacy()) {
+            entry = migrate(userId, entry);
+        }
+        near.put(userId, entry);
+        return entry;
+    }
+
+    /**
+     * cachedAt, ETag and status of the cached entry, read without decoding the response (conditional GETs).
+     * @return null on miss or for older-format values (use {@link #get})
+     */
+    public RefundStatusCodec.Header header(Long userId) {
+        CachedRefundStatus local = near.getIfPresent(userId);
+        if (local != null && !local.isOlderThan(hardTtl)) {
+            return new RefundStatusCodec.Header(local.cachedAt(), local.etag(), local.response().status());
+        }
+        try {
+            return codec.peek(redis.opsForValue().get(key(userId)));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    // Rewrite an older-format value in the current format, keeping its remaining lifetime
+    private CachedRefundStatus migrate(Long userId, CachedRefundStatus entry) {
+        if (entry.cachedAt() == null) {
+            // pre-envelope value: age unknown, treat as just past the soft TTL so it gets revalidated
+            entry = new CachedRefundStatus(entry.response(), Instant.now().minus(softTtl));
+        }
+        Duration remaining = Duration.between(Instant.now(), entry.cachedAt().plus(hardTtl));
+        if (!remaining.isNegative() && !remaining.isZero()) {
+            try {
+                redis.opsForValue().set(key(userId), codec.encode(entry), remaining);
+            } catch (Exception ignore) {
+                // keep serving; the next reader retries the migration
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Broadcast only when the ETag differs from the value replaced: refilling the same content changes
+     * nothing a peer could hold, and a fill of an absent key is a load (see {@link #putAll}).
+     */
+    public void put(Long userId, RefundStatusResponse resp) {
+        CachedRefundStatus entry = CachedRefundStatus.now(resp);
+        near.put(userId, entry);
+        try {
+            byte[] replaced = redis.execute(SWAP, List.of(key(userId)),
+                codec.encode(entry), Long.toString(hardTtl.toMillis()).getBytes(StandardCharsets.UTF_8));
+            if (changed(replaced, entry.etag())) {
+                broadcast(userId);
+            }
+        } catch (Exception ignore) {
+            // if Redis fails, still serve from L1 until it expires
+        }
+    }
+
+    private boolean changed(byte[] replaced, String etag) {
+        if (replaced == null) {
+            return false;
+        }
+        // older formats carry no readable ETag: assume changed
+        RefundStatusCodec.Header previous = codec.peek(replaced);
+        return previous == null || !etag.equals(previous.etag());
+    }
+
+    /**
+     * Bulk fill after misses, in one pipelined round trip. Not broadcast: these are loads, not
+     * changes, so a peer's near copy is at worst as old as the near-cache TTL allows.
+     */
+    public void putAll(Map<Long, RefundStatusResponse> responses) {
+        if (responses.isEmpty()) {
+            return;
+        }
+        Map<byte[], byte[]> encoded = new HashMap<>();
+        responses.forEach((userId, resp) -> {
+            CachedRefundStatus entry = CachedRefundStatus.now(resp);
+            near.put(userId, entry);
+            encoded.put(key(userId).getBytes(StandardCharsets.UTF_8), codec.encode(entry));
+        });
+        try {
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                encoded.forEach((key, value) ->
+                    connection.stringCommands().set(key, value, Expiration.from(hardTtl), SetOption.upsert()));
+                return null;
+            });
+        } catch (Exception ignore) {
+            // still served from L1 on this node
+        }
+    }
+
+    public void evict(Long userId) {
+        near.invalidate(userId);
+        try {
+            redis.delete(key(userId));
+            broadcast(userId);
+        } catch (Exception ignore) {
+            // peers fall back to the near-cache TTL
+        }
+    }
+
+    private void broadcast(Long userId) {
+        pubsub.convertAndSend(INVALIDATION_CHANNEL, nodeId + ":" + userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.lastIndexOf(':');
+        if (sep < 0 || body.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        try {
+            near.invalidate(Long.valueOf(body.substring(sep + 1)));
+        } catch (NumberFormatException ignore) {
+            // not ours
+        }
+    }
+
+    // Rough retained size: object headers/boxed fields + UTF-16 string payloads
+    static int estimateBytes(RefundStatusResponse resp) {
+        return 160 + 2 * (length(resp.status()) + length(resp.trackingId()) + length(resp.aiExplanation()));
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
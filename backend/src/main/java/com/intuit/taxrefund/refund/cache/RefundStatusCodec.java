@@ -0,0 +1,227 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Compact binary encoding of cached refund responses.
+ *
+ * Layout (big-endian): MAGIC, VERSION, cachedAt, etag, null-mask, then the response fields in record order.
+ * Strings and byte arrays are varint length-prefixed; instants are epoch seconds + nanos.
+ * cachedAt and etag come first (then the status after the null-mask and tax year) so {@link #peek(byte[])}
+ * can read them without decoding the rest.
+ *
+ * Version 1 (no etag) is still decoded and reported as legacy so it gets rewritten.
+ *
+ * Values written before the binary format (JSON, with or without the cachedAt envelope) are still
+ * decoded so a deploy does not flush the cache; see {@link Decoded#legacy()}.
+ */
+@Component
+public class RefundStatusCodec {
+
+    static final byte MAGIC = (byte) 0xB7;
+    static final byte VERSION_1 = 1;
+    static final byte VERSION_2 = 2;
+    static final byte CURRENT_VERSION = VERSION_2;
+
+    private static final int HAS_LAST_UPDATED = 1;
+    private static final int HAS_AMOUNT = 1 << 1;
+    private static final int HAS_TRACKING_ID = 1 << 2;
+    private static final int HAS_AVAILABLE_AT = 1 << 3;
+    private static final int HAS_AI_EXPLANATION = 1 << 4;
+
+    private final ObjectMapper objectMapper;
+
+    public RefundStatusCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param entry   decoded value; cachedAt is null when the legacy value did not record it
+     * @param legacy  true if the bytes were not in the current format and should be rewritten
+     */
+    public record Decoded(CachedRefundStatus entry, boolean legacy) {}
+
+    public record Header(Instant cachedAt, String etag, String status) {}
+
+    public byte[] encode(CachedRefundStatus entry) {
+        RefundStatusResponse r = entry.response();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(MAGIC);
+            out.writeByte(CURRENT_VERSION);
+            writeInstant(out, entry.cachedAt());
+            writeString(out, entry.etag());
+
+            int mask = (r.lastUpdatedAt() != null ? HAS_LAST_UPDATED : 0)
+                | (r.expectedAmount() != null ? HAS_AMOUNT : 0)
+                | (r.trackingId() != null ? HAS_TRACKING_ID : 0)
+                | (r.availableAtEstimated() != null ? HAS_AVAILABLE_AT : 0)
+                | (r.aiExplanation() != null ? HAS_AI_EXPLANATION : 0);
+            out.writeByte(mask);
+
+            out.writeShort(r.taxYear());
+            writeString(out, r.status());
+            if (r.lastUpdatedAt() != null) writeInstant(out, r.lastUpdatedAt());
+            if (r.expectedAmount() != null) writeDecimal(out, r.expectedAmount());
+            if (r.trackingId() != null) writeString(out, r.trackingId());
+            if (r.availableAtEstimated() != null) writeInstant(out, r.availableAtEstimated());
+            if (r.aiExplanation() != null) writeString(out, r.aiExplanation());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode refund status", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException for unknown versions or corrupt values
+     */
+    public Decoded decode(byte[] raw) {
+        if (raw == null || raw.length == 0) {
+            throw new IllegalArgumentException("Empty cache value");
+        }
+        if (raw[0] == '{') {
+            return new Decoded(decodeLegacyJson(raw), true);
+        }
+        if (raw[0] != MAGIC || raw.length < 2) {
+            throw new IllegalArgumentException("Unrecognized cache value");
+        }
+
+        byte version = raw[1];
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 2, raw.length - 2))) {
+            return switch (version) {
+                case VERSION_2 -> new Decoded(readV2(in), false);
+                case VERSION_1 -> new Decoded(readV1(in), true);
+                default -> throw new IllegalArgumentException("Unsupported cache value version " + version);
+            };
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt cache value", e);
+        }
+    }
+
+    /**
+     * cachedAt, etag and status of a current-format value, without decoding the rest of the response.
+     * @return null if the value is not in the current format (use {@link #decode(byte[])})
+     */
+    public Header peek(byte[] raw) {
+        if (raw == null || raw.length < 2 || raw[0] != MAGIC || raw[1] != VERSION_2) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw, 2, raw.length - 2))) {
+            Instant cachedAt = readInstant(in);
+            String etag = readString(in);
+            in.skipBytes(3); // null-mask + tax year
+            return new Header(cachedAt, etag, readString(in));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static CachedRefundStatus readV2(DataInputStream in) throws IOException {
+        Instant cachedAt = readInstant(in);
+        String etag = readString(in);
+        return new CachedRefundStatus(readResponse(in), cachedAt, etag);
+    }
+
+    private static CachedRefundStatus readV1(DataInputStream in) throws IOException {
+        Instant cachedAt = readInstant(in);
+        return new CachedRefundStatus(readResponse(in), cachedAt);
+    }
+
+    private static RefundStatusResponse readResponse(DataInputStream in) throws IOException {
+        int mask = in.readUnsignedByte();
+
+        int taxYear = in.readShort();
+        String status = readString(in);
+        Instant lastUpdatedAt = (mask & HAS_LAST_UPDATED) != 0 ? readInstant(in) : null;
+        BigDecimal expectedAmount = (mask & HAS_AMOUNT) != 0 ? readDecimal(in) : null;
+        String trackingId = (mask & HAS_TRACKING_ID) != 0 ? readString(in) : null;
+        Instant availableAt = (mask & HAS_AVAILABLE_AT) != 0 ? readInstant(in) : null;
+        String aiExplanation = (mask & HAS_AI_EXPLANATION) != 0 ? readString(in) : null;
+
+        return new RefundStatusResponse(taxYear, status, lastUpdatedAt, expectedAmount, trackingId, availableAt, aiExplanation);
+    }
+
+    // JSON written by earlier releases: {"response":{...},"cachedAt":...} or a bare RefundStatusResponse
+    private CachedRefundStatus decodeLegacyJson(byte[] raw) {
+        try {
+            JsonNode root = objectMapper.readTree(raw);
+            if (root.has("response")) {
+                CachedRefundStatus entry = objectMapper.treeToValue(root, CachedRefundStatus.class);
+                if (entry.response() == null) throw new IllegalArgumentException("Legacy cache value without response");
+                return entry;
+            }
+            return new CachedRefundStatus(objectMapper.treeToValue(root, RefundStatusResponse.class), null);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt legacy cache value", e);
+        }
+    }
+
+    private static void writeInstant(DataOutputStream out, Instant t) throws IOException {
+        out.writeLong(t.getEpochSecond());
+        out.writeInt(t.getNano());
+    }
+
+    private static Instant readInstant(DataInputStream in) throws IOException {
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal d) throws IOException {
+        out.writeShort(d.scale());
+        writeBytes(out, d.unscaledValue().toByteArray());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readShort();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        writeBytes(out, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+        writeVarInt(out, b.length);
+        out.write(b);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] b = new byte[readVarInt(in)];
+        in.readFully(b);
+        return b;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
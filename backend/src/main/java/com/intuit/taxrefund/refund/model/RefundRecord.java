@@ -4,9 +4,14 @@ import jakarta.persistence.*;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Objects;
 
 import com.intuit.taxrefund.auth.model.AppUser;
 
+/**
+ * Snapshot projection of refund_status_event for one (user, tax year): the fold of its events up to
+ * lastEventId. Only changed by applying events; see RefundProjector for replay.
+ */
 @Entity
 @Table(
     name = "refund_record",
@@ -41,6 +46,14 @@ public class RefundRecord {
     @Column(name = "available_at_estimated")
     private Instant availableAtEstimated;
 
+    // Newest event folded into this snapshot; replay resumes after it
+    @Column(name = "last_event_id")
+    private Long lastEventId;
+
+    // When RefundPollScheduler should next ask the IRS; null = terminal status, never polled
+    @Column(name = "next_poll_at")
+    private Instant nextPollAt = Instant.now();
+
     protected RefundRecord() {}
 
     public RefundRecord(AppUser user, int taxYear, RefundStatus status) {
@@ -77,6 +90,18 @@ public class RefundRecord {
         return irsTrackingId;
     }
 
+    public Long getLastEventId() {
+        return lastEventId;
+    }
+
+    public Instant getNextPollAt() {
+        return nextPollAt;
+    }
+
+    public void schedulePoll(Instant nextPollAt) {
+        this.nextPollAt = nextPollAt;
+    }
+
     public Instant getAvailableAtEstimated() {
         return availableAtEstimated;
     }
@@ -85,10 +110,37 @@ public class RefundRecord {
         this.availableAtEstimated = availableAtEstimated;
     }
 
-    public void updateFromIrs(RefundStatus status, BigDecimal expectedAmount, String irsTrackingId) {
-        this.status = status;
-        this.expectedAmount = expectedAmount;
-        this.irsTrackingId = irsTrackingId;
-        this.lastUpdatedAt = Instant.now();
+    /**
+     * Folds one event into the snapshot. Events at or before lastEventId are ignored, so replaying
+     * a user's full history over an up-to-date snapshot is a no-op.
+     * @return false if the event was already applied
+     */
+    public boolean apply(RefundStatusEvent event) {
+        if (lastEventId != null && event.getId() != null && event.getId() <= lastEventId) {
+            return false;
+        }
+        this.status = event.getToStatus();
+        this.expectedAmount = event.getExpectedAmount();
+        this.irsTrackingId = event.getIrsTrackingId();
+        this.lastUpdatedAt = event.getOccurredAt();
+        this.lastEventId = event.getId();
+        return true;
+    }
+
+    // Full rebuild: forget the fold so every event is applied again
+    public void resetProjection() {
+        this.lastEventId = null;
+    }
+
+    // True if applying this IRS state would change the snapshot
+    public boolean differsFrom(RefundStatus status, BigDecimal expectedAmount, String irsTrackingId) {
+        return this.status != status
+            || !sameAmount(this.expectedAmount, expectedAmount)
+            || !Objects.equals(this.irsTrackingId, irsTrackingId);
+    }
+
+    // numeric(18,2) round-trips 200 as 200.00; compare by value
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
     }
 }
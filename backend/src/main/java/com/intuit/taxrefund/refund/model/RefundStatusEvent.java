@@ -5,12 +5,17 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.Instant;
 
+/**
+ * Append-only history of a refund; the source of truth RefundRecord snapshots are folded from.
+ * Written for every change the IRS reports (status, amount or tracking id), never updated.
+ */
 @Entity
 @Table(
     name = "refund_status_event",
     indexes = {
         @Index(name = "ix_rse_user_year_time", columnList = "user_id,tax_year,occurred_at"),
-        @Index(name = "ix_rse_year_time", columnList = "tax_year,occurred_at")
+        @Index(name = "ix_rse_year_time", columnList = "tax_year,occurred_at"),
+        @Index(name = "ix_rse_user_id", columnList = "user_id,id")
     }
 )
 public class RefundStatusEvent {
@@ -93,4 +98,9 @@ public class RefundStatusEvent {
     public String getIrsTrackingId() { return irsTrackingId; }
     public String getSource() { return source; }
     public Instant getOccurredAt() { return occurredAt; }
-}
\ No newline at end of file
+
+    // For testing
+    public void setIdForTest(Long id) {
+        this.id = id;
+    }
+}
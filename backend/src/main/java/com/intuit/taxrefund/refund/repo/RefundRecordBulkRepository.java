@@ -0,0 +1,26 @@
+package com.intuit.taxrefund.refund.repo;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface RefundRecordBulkRepository {
+
+    // availableAtEstimated: latest ETA prediction for the record's status, else the record's own estimate
+    record StatusRow(
+        Long userId,
+        int taxYear,
+        String status,
+        Instant lastUpdatedAt,
+        BigDecimal expectedAmount,
+        String trackingId,
+        Instant availableAtEstimated
+    ) {}
+
+    /**
+     * Every refund record of these users joined to its latest ETA, in one query.
+     * Ordered by user, newest tax year first.
+     */
+    List<StatusRow> findStatusRows(Collection<Long> userIds);
+}
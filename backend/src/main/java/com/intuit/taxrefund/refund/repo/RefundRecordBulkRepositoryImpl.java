@@ -0,0 +1,57 @@
+package com.intuit.taxrefund.refund.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+// JDBC: one round trip with the ids bound as a single array parameter (no IN-list per size)
+class RefundRecordBulkRepositoryImpl implements RefundRecordBulkRepository {
+
+    private static final String SELECT = """
+        select r.user_id, r.tax_year, r.status, r.last_updated_at, r.expected_amount, r.irs_tracking_id,
+               coalesce(p.estimated_available_at, r.available_at_estimated) as available_at
+        from refund_record r
+        left join lateral (
+            select e.estimated_available_at
+            from refund_eta_prediction e
+            where e.user_id = r.user_id and e.tax_year = r.tax_year and e.status = r.status
+            order by e.created_at desc
+            limit 1
+        ) p on true
+        where r.user_id = any(?)
+        order by r.user_id, r.tax_year desc
+        """;
+
+    private final JdbcTemplate jdbc;
+
+    RefundRecordBulkRepositoryImpl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @Override
+    public List<StatusRow> findStatusRows(Collection<Long> userIds) {
+        if (userIds.isEmpty()) return List.of();
+
+        return jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT);
+            ps.setArray(1, con.createArrayOf("bigint", userIds.toArray()));
+            return ps;
+        }, (rs, i) -> new StatusRow(
+            rs.getLong("user_id"),
+            rs.getInt("tax_year"),
+            rs.getString("status"),
+            toInstant(rs.getTimestamp("last_updated_at")),
+            rs.getBigDecimal("expected_amount"),
+            rs.getString("irs_tracking_id"),
+            toInstant(rs.getTimestamp("available_at"))
+        ));
+    }
+
+    private static Instant toInstant(Timestamp t) {
+        return t == null ? null : t.toInstant();
+    }
+}
@@ -1,12 +1,63 @@
 package com.intuit.taxrefund.refund.repo;
 
+import jakarta.persistence.LockModeType;
+import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.intuit.taxrefund.refund.model.RefundRecord;
 
+import java.util.List;
 import java.util.Optional;
 
-public interface RefundRecordRepository extends JpaRepository<RefundRecord, Long> {
+public interface RefundRecordRepository extends JpaRepository<RefundRecord, Long>, RefundRecordBulkRepository {
+
+    interface DuePoll {
+        Long getUserId();
+        String getStatus();
+    }
+
     Optional<RefundRecord> findTopByUserIdOrderByTaxYearDesc(Long userId);
     Optional<RefundRecord> findByUserIdAndTaxYear(Long userId, Integer taxYear);
+
+    // Refresh locks the snapshot it folds into until commit, so concurrent refreshes (and replay) serialize
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<RefundRecord> findForUpdateByUserIdAndTaxYear(Long userId, Integer taxYear);
+
+    // Replay holds all of a user's snapshots until commit; refresh waits on the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from RefundRecord r where r.user.id = :userId")
+    List<RefundRecord> lockByUserId(@Param("userId") Long userId);
+
+    /**
+     * Claims up to batchSize records due for an IRS poll and reschedules them in the same statement:
+     * next_poll_at moves to now + cadence[status] (jittered +-10% so cohorts drift apart), or null for
+     * statuses without a cadence. SKIP LOCKED spreads due records across nodes without double polling.
+     * Only each user's newest tax year is polled (that is what the IRS lookup returns).
+     *
+     * @param cadence JSON object status -> ISO-8601 duration, e.g. {"RECEIVED":"PT1H"}
+     * @return due users and their current status (a failed refresh is retried at the next cadence)
+     */
+    @Transactional
+    @Query(value = """
+        with due as (
+            select r.id from refund_record r
+            where r.next_poll_at <= now()
+              and not exists (
+                  select 1 from refund_record n
+                  where n.user_id = r.user_id and n.tax_year > r.tax_year
+              )
+            order by r.next_poll_at asc
+            limit :batchSize
+            for update skip locked
+        )
+        update refund_record r
+        set next_poll_at = now() + cast(cast(:cadence as jsonb) ->> r.status as interval) * (0.9 + 0.2 * random())
+        from due d
+        where r.id = d.id
+        returning r.user_id as userId, r.status as status
+    """, nativeQuery = true)
+    List<DuePoll> claimDuePolls(@Param("cadence") String cadence, @Param("batchSize") int batchSize);
 }
@@ -1,7 +1,19 @@
 package com.intuit.taxrefund.refund.repo;
 
 import com.intuit.taxrefund.refund.model.RefundStatusEvent;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface RefundStatusEventRepository extends JpaRepository<RefundStatusEvent, Long> {
-}
\ No newline at end of file
+
+    // Replay order: id is assigned at append time, so it is the per-user commit order
+    List<RefundStatusEvent> findByUserIdOrderByIdAsc(Long userId);
+
+    // Keyset page of users that have events (projection rebuild)
+    @Query("select distinct e.userId from RefundStatusEvent e where e.userId > :afterUserId order by e.userId")
+    List<Long> findUserIdsAfter(@Param("afterUserId") Long afterUserId, Pageable page);
+}
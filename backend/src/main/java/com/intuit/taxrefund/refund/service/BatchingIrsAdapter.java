@@ -0,0 +1,135 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.intuit.taxrefund.refund.IrsProps;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batching front for an IrsAdapter: single-user fetches that arrive within a short window
+ * (or until maxBatchSize users are waiting) go upstream as one batch call; each caller still
+ * blocks for its own result. Concurrent fetches for the same user share one slot.
+ * Upstream rate limits count calls, so this multiplies the users we can reconcile per second.
+ */
+public class BatchingIrsAdapter implements IrsAdapter, AutoCloseable {
+
+    private final IrsAdapter upstream;
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<IrsRefundResult>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> window;
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "irs-batch-timer");
+        t.setDaemon(true);
+        return t;
+    });
+    // upstream calls run off the timer thread so one slow batch does not delay the next window
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    public BatchingIrsAdapter(IrsAdapter upstream, IrsProps.Batching cfg) {
+        this.upstream = upstream;
+        this.windowNanos = cfg.window().toNanos();
+        this.maxBatchSize = cfg.maxBatchSize();
+    }
+
+    @Override
+    public IrsRefundResult fetchMostRecentRefund(Long userId) {
+        CompletableFuture<IrsRefundResult> result;
+        Map<Long, CompletableFuture<IrsRefundResult>> full = null;
+
+        synchronized (lock) {
+            result = pending.get(userId);
+            if (result == null) {
+                result = new CompletableFuture<>();
+                pending.put(userId, result);
+                if (pending.size() == 1) {
+                    // first of a new batch opens the window
+                    Map<Long, CompletableFuture<IrsRefundResult>> batch = pending;
+                    window = timer.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+                }
+                if (pending.size() >= maxBatchSize) {
+                    // sent now: its window must not cut the next batch short
+                    window.cancel(false);
+                    full = pending;
+                    pending = new LinkedHashMap<>();
+                }
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return await(result);
+    }
+
+    // Already a batch: pass through, split to the upstream's batch size
+    @Override
+    public Map<Long, IrsRefundResult> fetchMostRecentRefunds(Collection<Long> userIds) {
+        Map<Long, IrsRefundResult> results = new LinkedHashMap<>();
+        List<Long> chunk = new ArrayList<>(Math.min(userIds.size(), maxBatchSize));
+        for (Long userId : userIds) {
+            chunk.add(userId);
+            if (chunk.size() == maxBatchSize) {
+                results.putAll(upstream.fetchMostRecentRefunds(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            results.putAll(upstream.fetchMostRecentRefunds(chunk));
+        }
+        return results;
+    }
+
+    private void flush(Map<Long, CompletableFuture<IrsRefundResult>> batch) {
+        synchronized (lock) {
+            // already sent because it filled up (timer fired before it could be cancelled)
+            if (pending != batch) return;
+            pending = new LinkedHashMap<>();
+        }
+        senders.execute(() -> send(batch));
+    }
+
+    private void send(Map<Long, CompletableFuture<IrsRefundResult>> batch) {
+        try {
+            Map<Long, IrsRefundResult> results = upstream.fetchMostRecentRefunds(batch.keySet());
+            batch.forEach((userId, result) -> {
+                IrsRefundResult r = results.get(userId);
+                if (r != null) {
+                    result.complete(r);
+                } else {
+                    result.completeExceptionally(new IllegalStateException("No IRS result for user " + userId));
+                }
+            });
+        } catch (RuntimeException | Error e) {
+            batch.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private static IrsRefundResult await(CompletableFuture<IrsRefundResult> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        senders.shutdown();
+    }
+}
@@ -3,10 +3,24 @@ package com.intuit.taxrefund.refund.service;
 import com.intuit.taxrefund.refund.model.RefundStatus;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public interface IrsAdapter {
     IrsRefundResult fetchMostRecentRefund(Long userId);
 
+    /**
+     * Most recent refund per user. Default is one call per user; adapters with a batch upstream override it.
+     */
+    default Map<Long, IrsRefundResult> fetchMostRecentRefunds(Collection<Long> userIds) {
+        Map<Long, IrsRefundResult> results = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            results.put(userId, fetchMostRecentRefund(userId));
+        }
+        return results;
+    }
+
     record IrsRefundResult(
         int taxYear,
         RefundStatus status,
@@ -1,9 +1,13 @@
 package com.intuit.taxrefund.refund.service;
 
+import com.intuit.taxrefund.refund.IrsProps;
 import com.intuit.taxrefund.refund.model.RefundStatus;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -11,8 +15,30 @@ import java.util.concurrent.ConcurrentHashMap;
 public class MockIrsAdapter implements IrsAdapter {
     private final Map<Long, IrsRefundResult> store = new ConcurrentHashMap<>();
 
+    // Simulated upstream round trip, paid once per call whether it asks for one user or many
+    private final Duration latency;
+
+    public MockIrsAdapter(IrsProps props) {
+        this.latency = props.mockLatency() == null ? Duration.ZERO : props.mockLatency();
+    }
+
     @Override
     public IrsRefundResult fetchMostRecentRefund(Long userId) {
+        simulateLatency();
+        return lookup(userId);
+    }
+
+    @Override
+    public Map<Long, IrsRefundResult> fetchMostRecentRefunds(Collection<Long> userIds) {
+        simulateLatency();
+        Map<Long, IrsRefundResult> results = new LinkedHashMap<>();
+        for (Long userId : userIds) {
+            results.put(userId, lookup(userId));
+        }
+        return results;
+    }
+
+    private IrsRefundResult lookup(Long userId) {
         return store.getOrDefault(userId, new IrsRefundResult(
             2025,
             RefundStatus.RECEIVED, new BigDecimal(1234.56),
@@ -20,6 +46,15 @@ public class MockIrsAdapter implements IrsAdapter {
         ));
     }
 
+    private void simulateLatency() {
+        if (latency.isZero()) return;
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     public void upsert(Long userId, IrsRefundResult result) {
         store.put(userId, result);
     }
@@ -0,0 +1,75 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.intuit.taxrefund.refund.cache.RefundStatusCache;
+import com.intuit.taxrefund.refund.stream.RefundUpdateStream;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Write-through for refund:latest:{userId}: rebuilds the cached response from the read model
+ * whenever the underlying state changes, so the next read is a hit instead of a cold load.
+ * The rebuilt response is also pushed to the user's open /api/refund/stream connections.
+ */
+@Component
+public class RefundCacheWriter {
+
+    private final RefundReadModel readModel;
+    private final RefundStatusCache cache;
+    private final RefundUpdateStream updates;
+
+    public RefundCacheWriter(RefundReadModel readModel, RefundStatusCache cache, RefundUpdateStream updates) {
+        this.readModel = readModel;
+        this.cache = cache;
+        this.updates = updates;
+    }
+
+    /**
+     * Inside a transaction the rebuild runs once per user after commit, so it sees everything the
+     * transaction wrote (status change, ETA prediction) and never caches state that was rolled back.
+     */
+    @SuppressWarnings("unchecked")
+    public void writeThrough(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild(userId);
+            return;
+        }
+
+        Set<Long> pending = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            Set<Long> users = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, users);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    users.forEach(RefundCacheWriter.this::rebuild);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RefundCacheWriter.this);
+                }
+            });
+            pending = users;
+        }
+        pending.add(userId);
+    }
+
+    private void rebuild(Long userId) {
+        try {
+            readModel.find(userId).ifPresentOrElse(
+                resp -> {
+                    cache.put(userId, resp);
+                    updates.publish(userId, resp);
+                },
+                () -> cache.evict(userId)
+            );
+        } catch (Exception e) {
+            // never leave a stale entry behind if the rebuild fails
+            cache.evict(userId);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository.DuePoll;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Shared IRS poll queue: Redis sorted set refund:poll:queue, member = userId, score = effective due time
+ * (epoch millis). Only records due by their cadence (refund_record.next_poll_at) are offered, so the queue
+ * re-ranks due work and never adds IRS calls: users who looked recently (refund:poll:hot) are offered
+ * hotBoost ahead, demoted statuses are pushed back. Every node pops the lowest scores atomically, so work
+ * is shared without duplicates. Scores only ever move earlier (ZADD LT).
+ */
+@Component
+public class RefundPollQueue {
+
+    public static final String KEY = "refund:poll:queue";
+    // member = userId, score = when their promotion lapses (now + hotInterval)
+    public static final String HOT_KEY = "refund:poll:hot";
+
+    // Pop up to ARGV[2] members due by ARGV[1] in score order, atomically across nodes
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> POP_DUE = new DefaultRedisScript<>("""
+        local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, tonumber(ARGV[2]))
+        if #due > 0 then
+          redis.call('ZREM', KEYS[1], unpack(due))
+        end
+        return due
+    """, List.class);
+
+    // Enqueue ARGV[3..] (member, score pairs) as of ARGV[1]; members in KEYS[2] still hot move ARGV[2] earlier
+    private static final DefaultRedisScript<Long> OFFER = new DefaultRedisScript<>("""
+        local now = tonumber(ARGV[1])
+        local boost = tonumber(ARGV[2])
+        redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now)
+        for i = 3, #ARGV, 2 do
+          local score = tonumber(ARGV[i + 1])
+          if redis.call('ZSCORE', KEYS[2], ARGV[i]) then score = score - boost end
+          redis.call('ZADD', KEYS[1], 'LT', score, ARGV[i])
+        end
+        return (#ARGV - 2) / 2
+    """, Long.class);
+
+    private final StringRedisTemplate redis;
+    private final RefundProps.Polling polling;
+    private final RefundProps.Queue cfg;
+    // Users promoted by this node within hotInterval (keeps the read path to one ZADD per window)
+    private final Cache<Long, Boolean> recentlyPromoted;
+
+    public RefundPollQueue(StringRedisTemplate redis, RefundProps props) {
+        this.redis = redis;
+        this.polling = props.polling();
+        this.cfg = polling.queue();
+        this.recentlyPromoted = Caffeine.newBuilder()
+            .expireAfterWrite(cfg.hotInterval())
+            .maximumSize(100_000)
+            .build();
+    }
+
+    /**
+     * A user just looked at their refund (/api/refund/latest, stream, assistant chat): marks them hot for
+     * hotInterval, so when their record next comes due it is served first. Never polls them sooner than
+     * their cadence; statuses without one are never polled at all.
+     * Best-effort: a Redis failure only means ordinary priority.
+     */
+    public void promote(Long userId, String status) {
+        RefundStatus parsed = parse(status);
+        if (!polling.enabled() || parsed == null || !polling.cadence().containsKey(parsed)) {
+            return;
+        }
+        if (recentlyPromoted.asMap().putIfAbsent(userId, Boolean.TRUE) != null) {
+            return;
+        }
+        double lapsesAt = Instant.now().plus(cfg.hotInterval()).toEpochMilli();
+        try {
+            redis.opsForZSet().add(HOT_KEY, userId.toString(), lapsesAt);
+        } catch (Exception ignore) {
+            // ordinary priority still applies
+        }
+    }
+
+    /**
+     * Enqueue records whose cadence says they are due, in one pipelined round trip.
+     * @return false if Redis is unavailable (caller should refresh them directly)
+     */
+    public boolean offer(Collection<DuePoll> due) {
+        if (due.isEmpty()) return true;
+        Instant now = Instant.now();
+        List<String> args = new ArrayList<>(2 + 2 * due.size());
+        args.add(Long.toString(now.toEpochMilli()));
+        args.add(Long.toString(cfg.hotBoost().toMillis()));
+        for (DuePoll poll : due) {
+            args.add(poll.getUserId().toString());
+            args.add(Long.toString(score(parse(poll.getStatus()), now)));
+        }
+        try {
+            redis.execute(OFFER, List.of(KEY, HOT_KEY), args.toArray());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return up to max users whose effective due time has passed, highest priority first; empty if Redis is down
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> pollDue(int max) {
+        try {
+            List<String> ids = redis.execute(POP_DUE, List.of(KEY),
+                Long.toString(Instant.now().toEpochMilli()), Integer.toString(max));
+            return ids == null ? List.of() : ids.stream().map(Long::valueOf).toList();
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    // Before the hot boost, which OFFER applies against refund:poll:hot
+    long score(RefundStatus status, Instant now) {
+        Instant due = now;
+        if (status != null && cfg.demoted().contains(status)) due = due.plus(cfg.demotePenalty());
+        return due.toEpochMilli();
+    }
+
+    private static RefundStatus parse(String status) {
+        try {
+            return status == null ? null : RefundStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
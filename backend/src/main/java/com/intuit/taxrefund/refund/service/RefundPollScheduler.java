@@ -0,0 +1,114 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository.DuePoll;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Proactive IRS refresh: each round every node moves a disjoint batch of due records
+ * (RefundRecordRepository#claimDuePolls) into the shared RefundPollQueue, pops the highest-priority
+ * users from it and reconciles them through RefundRefreshService, so changes take the usual
+ * event + outbox + cache path. How often a record is due depends on its status (refund.polling.cadence);
+ * users who are looking right now jump the queue, which spends IRS quota where it is noticed.
+ */
+@Component
+public class RefundPollScheduler {
+
+    private final RefundRecordRepository refundRepo;
+    private final RefundRefreshService refresher;
+    private final RefundPollQueue queue;
+    private final RefundProps.Polling polling;
+    private final String cadenceJson;
+
+    // The drain runs here, not on the shared scheduling thread; at most one per node
+    private final ExecutorService drainer = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("refund-poll").factory());
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    public RefundPollScheduler(
+        RefundRecordRepository refundRepo,
+        RefundRefreshService refresher,
+        RefundPollQueue queue,
+        RefundProps props,
+        ObjectMapper objectMapper
+    ) {
+        this.refundRepo = refundRepo;
+        this.refresher = refresher;
+        this.queue = queue;
+        this.polling = props.polling();
+        this.cadenceJson = toJson(polling.cadence(), objectMapper);
+    }
+
+    // status -> ISO-8601 duration, which Postgres casts to interval
+    private static String toJson(Map<?, Duration> cadence, ObjectMapper objectMapper) {
+        Map<String, String> json = new TreeMap<>();
+        cadence.forEach((status, every) -> json.put(status.toString(), every.toString()));
+        try {
+            return objectMapper.writeValueAsString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Invalid refund.polling.cadence", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${refund.polling.fixedDelayMs:10000}")
+    public void scheduledPoll() {
+        if (!polling.enabled() || !draining.compareAndSet(false, true)) return;
+        try {
+            drainer.execute(() -> {
+                try {
+                    poll();
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+        }
+    }
+
+    public void poll() {
+        if (!polling.enabled()) return;
+
+        // Drain: keep going while either side returns whole batches
+        List<DuePoll> due;
+        List<Long> batch;
+        do {
+            // 1) Durable schedule -> shared queue (promoted users are already in it)
+            due = refundRepo.claimDuePolls(cadenceJson, polling.batchSize());
+            if (queue.offer(due)) {
+                // 2) Highest priority first, whoever enqueued it
+                batch = queue.pollDue(polling.batchSize());
+            } else {
+                // Redis down: no priorities, just refresh what the schedule claimed
+                batch = due.stream().map(DuePoll::getUserId).toList();
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                refresher.refreshAll(new LinkedHashSet<>(batch));
+            } catch (Exception ignore) {
+                // IRS/DB trouble: the claimed records were already rescheduled, so they retry at their cadence
+                return;
+            }
+        } while (batch.size() == polling.batchSize() || due.size() == polling.batchSize());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        drainer.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Replays refund_status_event into refund_record for every user that has events. Users are
+ * independent aggregates, so they replay in parallel (virtual thread per user, bounded by permits);
+ * each user's events are still applied in order inside one transaction (RefundProjector).
+ */
+@Component
+public class RefundProjectionRebuilder {
+
+    private static final int PAGE_SIZE = 500;
+
+    private final RefundStatusEventRepository eventRepo;
+    private final RefundProjector projector;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+
+    public RefundProjectionRebuilder(RefundStatusEventRepository eventRepo, RefundProjector projector, RefundProps props) {
+        this.eventRepo = eventRepo;
+        this.projector = projector;
+        this.permits = new Semaphore(props.projection().rebuildConcurrency());
+    }
+
+    public record Result(int users, int eventsApplied, int failedUsers) {}
+
+    /**
+     * @param full  re-apply all events; otherwise catch each snapshot up from its lastEventId
+     * @return counts so far; stops early if interrupted
+     */
+    public Result rebuildAll(boolean full) {
+        int users = 0, applied = 0, failed = 0;
+        long after = 0;
+        List<Long> page;
+        do {
+            page = eventRepo.findUserIdsAfter(after, PageRequest.of(0, PAGE_SIZE));
+
+            List<Future<Integer>> running = new ArrayList<>(page.size());
+            for (Long userId : page) {
+                running.add(executor.submit(() -> replay(userId, full)));
+            }
+            for (Future<Integer> f : running) {
+                try {
+                    applied += f.get();
+                } catch (ExecutionException e) {
+                    // that user's transaction rolled back; its snapshot is unchanged and can be replayed again
+                    failed++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new Result(users, applied, failed);
+                }
+            }
+
+            users += page.size();
+            if (!page.isEmpty()) after = page.get(page.size() - 1);
+        } while (page.size() == PAGE_SIZE);
+
+        return new Result(users, applied, failed);
+    }
+
+    private int replay(Long userId, boolean full) {
+        permits.acquireUninterruptibly();
+        try {
+            return projector.replay(userId, full);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
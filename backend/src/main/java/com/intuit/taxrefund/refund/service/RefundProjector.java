@@ -0,0 +1,67 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.intuit.taxrefund.auth.repo.UserRepository;
+import com.intuit.taxrefund.refund.model.RefundRecord;
+import com.intuit.taxrefund.refund.model.RefundStatusEvent;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds a user's RefundRecord snapshots from refund_status_event (the source of truth).
+ * Normally snapshots are kept current by RefundRefreshService as it appends; this is the repair path.
+ */
+@Component
+public class RefundProjector {
+
+    private final RefundStatusEventRepository eventRepo;
+    private final RefundRecordRepository refundRepo;
+    private final UserRepository userRepo;
+    private final RefundCacheWriter cacheWriter;
+
+    public RefundProjector(
+        RefundStatusEventRepository eventRepo,
+        RefundRecordRepository refundRepo,
+        UserRepository userRepo,
+        RefundCacheWriter cacheWriter
+    ) {
+        this.eventRepo = eventRepo;
+        this.refundRepo = refundRepo;
+        this.userRepo = userRepo;
+        this.cacheWriter = cacheWriter;
+    }
+
+    /**
+     * Folds the user's events into their snapshots, one transaction per user.
+     * @param full  re-apply every event; otherwise only events after each snapshot's lastEventId
+     * @return number of events applied
+     */
+    @Transactional
+    public int replay(Long userId, boolean full) {
+        Map<Integer, RefundRecord> snapshots = refundRepo.lockByUserId(userId).stream()
+            .collect(Collectors.toMap(RefundRecord::getTaxYear, Function.identity()));
+        if (full) {
+            snapshots.values().forEach(RefundRecord::resetProjection);
+        }
+
+        List<RefundStatusEvent> events = eventRepo.findByUserIdOrderByIdAsc(userId);
+        int applied = 0;
+        for (RefundStatusEvent event : events) {
+            RefundRecord snapshot = snapshots.computeIfAbsent(event.getTaxYear(),
+                year -> new RefundRecord(userRepo.getReferenceById(userId), year, event.getToStatus()));
+            if (snapshot.apply(event)) applied++;
+        }
+
+        if (applied > 0) {
+            refundRepo.saveAll(snapshots.values());
+            cacheWriter.writeThrough(userId);
+        }
+        return applied;
+    }
+}
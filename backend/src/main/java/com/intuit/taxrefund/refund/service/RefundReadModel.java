@@ -0,0 +1,79 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
+import com.intuit.taxrefund.ai.repo.RefundEtaPredictionRepository;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.model.RefundRecord;
+import com.intuit.taxrefund.refund.repo.RefundRecordBulkRepository;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds RefundStatusResponse from persisted state only (record + latest ETA prediction).
+ * Never calls IRS and never writes.
+ */
+@Component
+public class RefundReadModel {
+
+    private final RefundRecordRepository refundRepo;
+    private final RefundEtaPredictionRepository etaRepo;
+
+    public RefundReadModel(RefundRecordRepository refundRepo, RefundEtaPredictionRepository etaRepo) {
+        this.refundRepo = refundRepo;
+        this.etaRepo = etaRepo;
+    }
+
+    public Optional<RefundRecord> findLatestRecord(Long userId) {
+        return refundRepo.findTopByUserIdOrderByTaxYearDesc(userId);
+    }
+
+    public Optional<RefundStatusResponse> find(Long userId) {
+        return findLatestRecord(userId).map(record -> toResponse(userId, record));
+    }
+
+    /**
+     * Bulk {@link #find}: every refund of these users (newest tax year first), one query in total.
+     * Users without any record are absent.
+     */
+    public Map<Long, List<RefundStatusResponse>> findAll(Collection<Long> userIds) {
+        Map<Long, List<RefundStatusResponse>> byUser = new LinkedHashMap<>();
+        for (RefundRecordBulkRepository.StatusRow row : refundRepo.findStatusRows(userIds)) {
+            byUser.computeIfAbsent(row.userId(), k -> new ArrayList<>()).add(new RefundStatusResponse(
+                row.taxYear(),
+                row.status(),
+                row.lastUpdatedAt(),
+                row.expectedAmount(),
+                row.trackingId(),
+                row.availableAtEstimated(),
+                null
+            ));
+        }
+        return byUser;
+    }
+
+    public RefundStatusResponse toResponse(Long userId, RefundRecord record) {
+        // Latest persisted ETA prediction (do NOT call AI inline); record keeps last-known as fallback
+        Instant estimatedAvailableAt = etaRepo
+            .findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(userId, record.getTaxYear(), record.getStatus().name())
+            .map(RefundEtaPrediction::getEstimatedAvailableAt)
+            .orElse(record.getAvailableAtEstimated());
+
+        return new RefundStatusResponse(
+            record.getTaxYear(),
+            record.getStatus().name(),
+            record.getLastUpdatedAt(),
+            record.getExpectedAmount(),
+            record.getIrsTrackingId(),
+            estimatedAvailableAt,
+            null // aiExplanation moved to assistant layer (LLM) instead of core API
+        );
+    }
+}
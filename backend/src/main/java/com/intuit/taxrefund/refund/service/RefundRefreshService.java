@@ -0,0 +1,171 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.auth.model.AppUser;
+import com.intuit.taxrefund.auth.repo.UserRepository;
+import com.intuit.taxrefund.outbox.model.OutboxEvent;
+import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
+import com.intuit.taxrefund.outbox.service.OutboxNotifier;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.cache.RefundCheckLog;
+import com.intuit.taxrefund.refund.model.RefundRecord;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.model.RefundStatusEvent;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Write side of the refund read model: reconciles with the IRS by appending refund_status_event
+ * rows (never updating them) and folding each into the RefundRecord snapshot, plus outbox rows
+ * for status changes. RefundService (read side) never writes; RefundProjector can rebuild snapshots.
+ * The IRS call (possibly waiting out a batching window) happens before the transaction opens, so no
+ * connection or snapshot lock is held while waiting on it.
+ */
+@Service
+public class RefundRefreshService {
+
+    private final RefundRecordRepository refundRepo;
+    private final UserRepository userRepo;
+    private final IrsAdapter irs;
+
+    private final RefundStatusEventRepository statusEventRepo;
+    private final OutboxEventRepository outboxRepo;
+    private final OutboxNotifier outboxNotifier;
+
+    private final RefundCacheWriter cacheWriter;
+    private final RefundCheckLog checks;
+    private final RefundProps props;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactions;
+
+    public RefundRefreshService(
+        RefundRecordRepository refundRepo,
+        UserRepository userRepo,
+        IrsAdapter irs,
+        RefundStatusEventRepository statusEventRepo,
+        OutboxEventRepository outboxRepo,
+        OutboxNotifier outboxNotifier,
+        RefundCacheWriter cacheWriter,
+        RefundCheckLog checks,
+        RefundProps props,
+        ObjectMapper objectMapper,
+        PlatformTransactionManager transactionManager
+    ) {
+        this.refundRepo = refundRepo;
+        this.userRepo = userRepo;
+        this.irs = irs;
+
+        this.statusEventRepo = statusEventRepo;
+        this.outboxRepo = outboxRepo;
+        this.outboxNotifier = outboxNotifier;
+
+        this.cacheWriter = cacheWriter;
+        this.checks = checks;
+        this.props = props;
+        this.objectMapper = objectMapper;
+        this.transactions = new TransactionTemplate(transactionManager);
+    }
+
+    public RefundRecord refresh(Long userId) {
+        // 1) Fetch latest from IRS adapter, outside the transaction
+        IrsAdapter.IrsRefundResult irsResult = irs.fetchMostRecentRefund(userId);
+
+        return transactions.execute(status -> apply(userId, irsResult, () -> userRepo.findById(userId).orElseThrow()));
+    }
+
+    /**
+     * {@link #refresh} for many users with one batched IRS call and one transaction.
+     * Ids without a user account are skipped.
+     */
+    public Map<Long, RefundRecord> refreshAll(Collection<Long> userIds) {
+        Map<Long, AppUser> users = userRepo.findAllById(userIds).stream()
+            .collect(Collectors.toMap(AppUser::getId, Function.identity()));
+        if (users.isEmpty()) return Map.of();
+
+        // apply in id order so two overlapping batches take their row locks in the same order (no deadlock)
+        Map<Long, IrsAdapter.IrsRefundResult> results = new TreeMap<>(irs.fetchMostRecentRefunds(users.keySet()));
+
+        return transactions.execute(status -> {
+            Map<Long, RefundRecord> records = new LinkedHashMap<>();
+            results.forEach((userId, irsResult) ->
+                records.put(userId, apply(userId, irsResult, () -> users.get(userId))));
+            return records;
+        });
+    }
+
+    private RefundRecord apply(Long userId, IrsAdapter.IrsRefundResult irsResult, Supplier<AppUser> user) {
+        // 2) Lock the snapshot (a concurrent refresh then sees this one's result and appends nothing),
+        //    or start one for a tax year we have not seen: unique(user_id, tax_year) rolls back a racing insert
+        RefundRecord record = refundRepo.findForUpdateByUserIdAndTaxYear(userId, irsResult.taxYear()).orElse(null);
+        boolean isNew = record == null;
+        if (isNew) {
+            record = new RefundRecord(user.get(), irsResult.taxYear(), irsResult.status());
+        }
+
+        // 3) Nothing changed: no event and no row write, only the (Redis, batched) check time moves
+        if (!isNew && !record.differsFrom(irsResult.status(), irsResult.expectedAmount(), irsResult.trackingId())) {
+            checks.markChecked(userId);
+            return record;
+        }
+
+        // 4) Append the change, then fold it into the snapshot (the event is the source of truth)
+        RefundStatus oldStatus = isNew ? null : record.getStatus();
+        RefundStatus newStatus = irsResult.status();
+        RefundStatusEvent event = RefundStatusEvent.of(
+            userId,
+            irsResult.taxYear(),
+            record.getUser().getState(),
+            oldStatus,
+            newStatus,
+            irsResult.expectedAmount(),
+            irsResult.trackingId(),
+            "IRS"
+        );
+        statusEventRepo.save(event);
+        record.apply(event);
+        record.schedulePoll(props.polling().nextPollAt(newStatus, event.getOccurredAt()));
+
+        // ETA depends on status only; amount/tracking corrections do not need a new prediction
+        if (oldStatus != newStatus) {
+            // payload is stored as jsonb string; keep it simple + deterministic
+            String payloadJson;
+            try {
+                payloadJson = objectMapper.writeValueAsString(Map.of(
+                    "userId", userId,
+                    "taxYear", record.getTaxYear(),
+                    "filingState", record.getUser().getState(),
+                    "status", newStatus.name(),
+                    "expectedAmount", record.getExpectedAmount(),
+                    "trackingId", record.getIrsTrackingId()
+                ));
+            } catch (Exception e) {
+                // fallback: minimal payload
+                payloadJson = "{\"userId\":" + userId + ",\"taxYear\":" + record.getTaxYear() + ",\"status\":\"" + newStatus.name() + "\"}";
+            }
+
+            outboxRepo.save(OutboxEvent.newEvent(
+                "REFUND_STATUS_UPDATED",
+                userId + ":" + record.getTaxYear(),
+                payloadJson
+            ));
+            // wake outbox workers once this commits (ETA prediction without waiting for a poll)
+            outboxNotifier.notifyInserted();
+        }
+
+        // Write the new state through to the cache after commit (all nodes see it, no cold read)
+        cacheWriter.writeThrough(userId);
+
+        return refundRepo.save(record);
+    }
+}
@@ -1,162 +1,312 @@
 package com.intuit.taxrefund.refund.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
-import com.intuit.taxrefund.ai.repo.RefundEtaPredictionRepository;
 import com.intuit.taxrefund.auth.jwt.JwtService;
-import com.intuit.taxrefund.auth.model.AppUser;
-import com.intuit.taxrefund.auth.repo.UserRepository;
-import com.intuit.taxrefund.outbox.model.OutboxEvent;
-import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.api.dto.BulkRefundStatusRequest;
 import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.cache.CachedRefundStatus;
+import com.intuit.taxrefund.refund.cache.RedisLease;
+import com.intuit.taxrefund.refund.cache.RefundCheckLog;
+import com.intuit.taxrefund.refund.cache.RefundStatusCache;
+import com.intuit.taxrefund.refund.cache.RefundStatusCodec;
+import com.intuit.taxrefund.refund.cache.SingleFlight;
 import com.intuit.taxrefund.refund.model.RefundRecord;
-import com.intuit.taxrefund.refund.model.RefundStatus;
-import com.intuit.taxrefund.refund.model.RefundStatusEvent;
-import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
-import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
-import jakarta.transaction.Transactional;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Read side of refund status: serves the persisted read model (record + latest ETA prediction)
+ * without writing. IRS reconciliation goes through RefundRefreshService.
+ */
 @Service
 public class RefundService {
 
-    private final RefundRecordRepository refundRepo;
-    private final UserRepository userRepo;
-    private final IrsAdapter irs;
+    private final RefundReadModel readModel;
+    private final RefundRefreshService refresher;
 
-    private final RefundStatusEventRepository statusEventRepo;
-    private final OutboxEventRepository outboxRepo;
-    private final RefundEtaPredictionRepository etaRepo;
+    private final RefundStatusCache cache;
+    private final RefundCheckLog checks;
+    private final RefundPollQueue pollQueue;
+    private final RedisLease lease;
+    private final RefundProps props;
 
-    private final StringRedisTemplate redis;
-    private final ObjectMapper objectMapper;
+    // Concurrent cache misses for the same user share one load in this JVM
+    private final SingleFlight<Long, RefundStatusResponse> loads = new SingleFlight<>();
+
+    // Background work (cache revalidation, IRS reconciliation); at most one in-flight task of each kind per user
+    private final ExecutorService background = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Long> revalidating = ConcurrentHashMap.newKeySet();
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
 
     public RefundService(
-        RefundRecordRepository refundRepo,
-        UserRepository userRepo,
-        IrsAdapter irs,
-        RefundStatusEventRepository statusEventRepo,
-        OutboxEventRepository outboxRepo,
-        RefundEtaPredictionRepository etaRepo,
-        StringRedisTemplate redis,
-        ObjectMapper objectMapper
+        RefundReadModel readModel,
+        RefundRefreshService refresher,
+        RefundStatusCache cache,
+        RefundCheckLog checks,
+        RefundPollQueue pollQueue,
+        RedisLease lease,
+        RefundProps props
     ) {
-        this.refundRepo = refundRepo;
-        this.userRepo = userRepo;
-        this.irs = irs;
+        this.readModel = readModel;
+        this.refresher = refresher;
 
-        this.statusEventRepo = statusEventRepo;
-        this.outboxRepo = outboxRepo;
-        this.etaRepo = etaRepo;
+        this.cache = cache;
+        this.checks = checks;
+        this.pollQueue = pollQueue;
+        this.lease = lease;
+        this.props = props;
+    }
 
-        this.redis = redis;
-        this.objectMapper = objectMapper;
+    private static String leaseKey(Long userId) {
+        return "refund:lease:" + userId;
     }
 
-    @Transactional
+    /**
+     * The user is looking at their refund: also promotes them in the IRS poll queue.
+     */
     public RefundStatusResponse getLatestRefundStatus(JwtService.JwtPrincipal principal) {
         Long userId = principal.userId();
 
-        String cacheKey = "refund:latest:" + userId;
-        String cached = redis.opsForValue().get(cacheKey);
+        RefundStatusResponse resp;
+        CachedRefundStatus cached = cache.get(userId);
         if (cached != null) {
-            try {
-                return objectMapper.readValue(cached, RefundStatusResponse.class);
-            } catch (Exception ignore) {
-                // cache corruption / schema change -> ignore cache
+            // Past the soft TTL: serve it now and rebuild off the request path
+            if (cached.isOlderThan(props.cache().softTtl())) {
+                revalidateInBackground(userId);
             }
+            resp = cached.response();
+        } else {
+            // Past the hard TTL (or never cached): block on a coalesced load
+            resp = loads.run(userId, () -> loadCoalesced(userId));
         }
 
-        // 1) Fetch latest from IRS adapter
-        IrsAdapter.IrsRefundResult irsResult = irs.fetchMostRecentRefund(userId);
+        if (resp != null) {
+            pollQueue.promote(userId, resp.status());
+        }
+        return resp;
+    }
 
-        // 2) Load/create record
-        RefundRecord record = refundRepo.findByUserIdAndTaxYear(userId, irsResult.taxYear())
-            .orElseGet(() -> {
-                AppUser user = userRepo.findById(userId).orElseThrow();
-                return new RefundRecord(user, irsResult.taxYear(), RefundStatus.RECEIVED);
-            });
+    /**
+     * Bulk lookup (support tooling) in a constant number of round trips: one cache MGET, one SQL query
+     * for the misses, and one batched IRS call for users that have no record yet.
+     * @return responses in key order; null where the user (or that tax year) has no refund
+     */
+    public List<RefundStatusResponse> getRefundStatuses(List<BulkRefundStatusRequest.Key> keys) {
+        Set<Long> userIds = new LinkedHashSet<>();
+        keys.forEach(k -> userIds.add(k.userId()));
 
-        // 3) Update record and write event + outbox if status changed
-        RefundStatus oldStatus = record.getStatus();
-        record.updateFromIrs(irsResult.status(), irsResult.expectedAmount(), irsResult.trackingId());
-
-        RefundStatus newStatus = record.getStatus();
-        boolean statusChanged = oldStatus != newStatus;
-
-        if (statusChanged) {
-            statusEventRepo.save(RefundStatusEvent.of(
-                userId,
-                record.getTaxYear(),
-                record.getUser().getState(),
-                oldStatus,
-                newStatus,
-                record.getExpectedAmount(),
-                record.getIrsTrackingId(),
-                "IRS"
-            ));
-
-            // payload is stored as jsonb string; keep it simple + deterministic
-            String payloadJson;
-            try {
-                payloadJson = objectMapper.writeValueAsString(Map.of(
-                    "userId", userId,
-                    "taxYear", record.getTaxYear(),
-                    "filingState", record.getUser().getState(),
-                    "status", newStatus.name(),
-                    "expectedAmount", record.getExpectedAmount(),
-                    "trackingId", record.getIrsTrackingId()
-                ));
-            } catch (Exception e) {
-                // fallback: minimal payload
-                payloadJson = "{\"userId\":" + userId + ",\"taxYear\":" + record.getTaxYear() + ",\"status\":\"" + newStatus.name() + "\"}";
+        // 1) Cache: holds each user's latest refund only
+        Map<Long, CachedRefundStatus> cached = cache.getAll(userIds);
+        cached.forEach((userId, entry) -> {
+            if (entry.isOlderThan(props.cache().softTtl())) {
+                revalidateInBackground(userId);
+            }
+        });
+
+        RefundStatusResponse[] out = new RefundStatusResponse[keys.size()];
+        Set<Long> misses = new LinkedHashSet<>();
+        for (int i = 0; i < keys.size(); i++) {
+            BulkRefundStatusRequest.Key key = keys.get(i);
+            CachedRefundStatus entry = cached.get(key.userId());
+            if (entry != null && matchesYear(key, entry.response())) {
+                out[i] = entry.response();
+            } else {
+                misses.add(key.userId());
             }
+        }
+        if (misses.isEmpty()) {
+            return Arrays.asList(out);
+        }
+
+        // 2) Read model for the misses
+        Map<Long, List<RefundStatusResponse>> persisted = new HashMap<>(readModel.findAll(misses));
+
+        // 3) First visit: reconcile all never-seen users with IRS at once
+        Set<Long> unseen = new LinkedHashSet<>(misses);
+        unseen.removeAll(persisted.keySet());
+        if (!unseen.isEmpty()) {
+            refresher.refreshAll(unseen);
+            persisted.putAll(readModel.findAll(unseen));
+        }
 
-            outboxRepo.save(OutboxEvent.newEvent(
-                "REFUND_STATUS_UPDATED",
-                userId + ":" + record.getTaxYear(),
-                payloadJson
-            ));
+        Map<Long, RefundStatusResponse> fills = new HashMap<>();
+        persisted.forEach((userId, refunds) -> {
+            if (!cached.containsKey(userId)) fills.put(userId, refunds.get(0));
+        });
+        cache.putAll(fills);
 
-            // Invalidate cache on change
-            redis.delete(cacheKey);
+        for (int i = 0; i < keys.size(); i++) {
+            if (out[i] != null) continue;
+            BulkRefundStatusRequest.Key key = keys.get(i);
+            for (RefundStatusResponse refund : persisted.getOrDefault(key.userId(), List.of())) {
+                if (matchesYear(key, refund)) {
+                    out[i] = refund;
+                    break;
+                }
+            }
         }
+        return Arrays.asList(out);
+    }
 
-        // 4) Read latest persisted ETA prediction (do NOT call AI inline)
-        Instant estimatedAvailableAt = record.getAvailableAtEstimated(); // fallback
-        RefundEtaPrediction pred = etaRepo
-            .findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(userId, record.getTaxYear(), record.getStatus().name())
-            .orElse(null);
+    // no year = latest; refunds are listed newest year first
+    private static boolean matchesYear(BulkRefundStatusRequest.Key key, RefundStatusResponse refund) {
+        return key.taxYear() == null || key.taxYear() == refund.taxYear();
+    }
+
+    /**
+     * Conditional GET fast path: the cached response's ETag if If-None-Match still matches it,
+     * checked against the stored ETag without decoding the response. null = serve the body.
+     * A 304 is still the user looking at their refund, so it promotes them in the poll queue too.
+     */
+    public String matchingCachedEtag(JwtService.JwtPrincipal principal, String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return null;
+        }
+        Long userId = principal.userId();
+        RefundStatusCodec.Header header = cache.header(userId);
+        if (header == null || !etagMatches(ifNoneMatch, header.etag())) {
+            return null;
+        }
+        // same soft-TTL behavior as a cache hit
+        if (header.cachedAt().isBefore(Instant.now().minus(props.cache().softTtl()))) {
+            revalidateInBackground(userId);
+        }
+        pollQueue.promote(userId, header.status());
+        return header.etag();
+    }
 
-        if (pred != null && pred.getEstimatedAvailableAt() != null) {
-            estimatedAvailableAt = pred.getEstimatedAvailableAt();
-            record.setAvailableAtEstimated(estimatedAvailableAt); // keep last-known on record
+    // If-None-Match: comma-separated list, weak comparison, or *
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
         }
+        return false;
+    }
 
-        refundRepo.save(record);
+    private RefundStatusResponse loadCoalesced(Long userId) {
+        // Another local caller may have filled the cache while we queued for the flight
+        CachedRefundStatus cached = cache.get(userId);
+        if (cached != null) {
+            return cached.response();
+        }
 
-        RefundStatusResponse resp = new RefundStatusResponse(
-            record.getTaxYear(),
-            record.getStatus().name(),
-            record.getLastUpdatedAt(),
-            record.getExpectedAmount(),
-            record.getIrsTrackingId(),
-            estimatedAvailableAt,
-            null // aiExplanation moved to assistant layer (LLM) instead of core API
-        );
+        // Across nodes: one lease holder rebuilds the entry, the others wait for it
+        RefundProps.Cache cfg = props.cache();
+        String leaseKey = leaseKey(userId);
+        String token = lease.tryAcquire(leaseKey, cfg.leaseTtl());
+        if (token == null) {
+            RefundStatusResponse loadedElsewhere = awaitCache(userId, cfg);
+            if (loadedElsewhere != null) {
+                return loadedElsewhere;
+            }
+            // holder died or is slow: load ourselves rather than fail the request
+            return load(userId);
+        }
 
-        // 5) Cache response (short TTL to handle burst traffic)
         try {
-            redis.opsForValue().set(cacheKey, objectMapper.writeValueAsString(resp), Duration.ofSeconds(60));
-        } catch (Exception ignore) {
-            // if Redis/json fails, still return response
+            return load(userId);
+        } finally {
+            lease.release(leaseKey, token);
+        }
+    }
+
+    private RefundStatusResponse load(Long userId) {
+        // 1) Read model: persisted record (no IRS call, no writes)
+        RefundRecord record = readModel.findLatestRecord(userId).orElse(null);
+        if (record == null) {
+            // First visit: nothing to serve yet, so reconcile with IRS inline once
+            record = refresher.refresh(userId);
+        } else if (!props.polling().enabled() && isStale(userId, record)) {
+            // without the poller, reads are what keeps records fresh
+            refreshInBackground(userId);
         }
 
+        RefundStatusResponse resp = readModel.toResponse(userId, record);
+
+        // 2) Cache response (near cache + Redis, short TTL to handle burst traffic)
+        cache.put(userId, resp);
+
         return resp;
     }
-}
\ No newline at end of file
+
+    private RefundStatusResponse awaitCache(Long userId, RefundProps.Cache cfg) {
+        long deadline = System.nanoTime() + cfg.leaseTtl().toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(cfg.leasePollInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CachedRefundStatus cached = cache.get(userId);
+            if (cached != null) {
+                return cached.response();
+            }
+        }
+        return null;
+    }
+
+    // Fresh if the record changed recently or an IRS check recently found nothing new
+    private boolean isStale(Long userId, RefundRecord record) {
+        Instant threshold = Instant.now().minus(props.refresh().staleAfter());
+        if (!record.getLastUpdatedAt().isBefore(threshold)) {
+            return false;
+        }
+        Instant checked = checks.lastChecked(userId);
+        return checked == null || checked.isBefore(threshold);
+    }
+
+    private void revalidateInBackground(Long userId) {
+        runInBackground(revalidating, userId, () -> {
+            // One node rebuilds; if another already holds the lease it is doing the same work
+            String leaseKey = leaseKey(userId);
+            String token = lease.tryAcquire(leaseKey, props.cache().leaseTtl());
+            if (token == null) return;
+            try {
+                load(userId);
+            } finally {
+                lease.release(leaseKey, token);
+            }
+        });
+    }
+
+    private void refreshInBackground(Long userId) {
+        runInBackground(refreshing, userId, () -> refresher.refresh(userId));
+    }
+
+    private void runInBackground(Set<Long> inFlight, Long userId, Runnable task) {
+        if (!inFlight.add(userId)) return;
+        try {
+            background.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception ignore) {
+                    // best-effort: the next stale read will retry
+                } finally {
+                    inFlight.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(userId);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        background.shutdown();
+    }
+}
@@ -0,0 +1,143 @@
+package com.intuit.taxrefund.refund.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import jakarta.annotation.PostConstruct;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Open /api/refund/stream connections on this node, keyed by user.
+ * Updates are published on a Redis channel (message = "<userId>:<response json>") so a change
+ * handled on any node reaches the user's stream on whichever node holds it.
+ */
+@Component
+public class RefundUpdateStream implements MessageListener {
+
+    public static final String UPDATES_CHANNEL = "refund:updates";
+
+    // EventSource retry delay after a dropped connection
+    private static final long RECONNECT_MILLIS = 3000;
+
+    private final StringRedisTemplate pubsub;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper om;
+    private final Duration timeout;
+
+    private final Map<Long, Set<SseEmitter>> streams = new ConcurrentHashMap<>();
+
+    public RefundUpdateStream(
+        StringRedisTemplate pubsub,
+        RedisMessageListenerContainer listenerContainer,
+        ObjectMapper om,
+        RefundProps props
+    ) {
+        this.pubsub = pubsub;
+        this.listenerContainer = listenerContainer;
+        this.om = om;
+        this.timeout = props.stream().timeout();
+    }
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(UPDATES_CHANNEL));
+    }
+
+    public SseEmitter open(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        streams.computeIfAbsent(userId, k -> ConcurrentHashMap.newKeySet()).add(emitter);
+
+        Runnable remove = () -> close(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    public void close(Long userId, SseEmitter emitter) {
+        streams.computeIfPresent(userId, (k, set) -> {
+            set.remove(emitter);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void send(Long userId, SseEmitter emitter, RefundStatusResponse resp) {
+        try {
+            emitter.send(SseEmitter.event()
+                .name("refund")
+                .reconnectTime(RECONNECT_MILLIS)
+                .data(resp, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            // client went away; the container completes the emitter
+            close(userId, emitter);
+        }
+    }
+
+    /**
+     * Fan-out to every node's streams for this user.
+     */
+    public void publish(Long userId, RefundStatusResponse resp) {
+        try {
+            pubsub.convertAndSend(UPDATES_CHANNEL, userId + ":" + om.writeValueAsString(resp));
+        } catch (Exception ignore) {
+            // streams get the current state again when they reconnect
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        if (streams.isEmpty()) return;
+
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int sep = body.indexOf(':');
+        if (sep < 0) return;
+
+        Long userId;
+        try {
+            userId = Long.valueOf(body.substring(0, sep));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        // user not connected here: skip the JSON parse
+        Set<SseEmitter> emitters = streams.get(userId);
+        if (emitters == null) return;
+
+        RefundStatusResponse resp;
+        try {
+            resp = om.readValue(body.substring(sep + 1), RefundStatusResponse.class);
+        } catch (Exception e) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            send(userId, emitter, resp);
+        }
+    }
+
+    // SSE comment line so proxies and load balancers do not cut idle streams
+    @Scheduled(fixedDelayString = "${refund.stream.heartbeat:PT25S}")
+    public void heartbeat() {
+        streams.forEach((userId, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                } catch (Exception e) {
+                    close(userId, emitter);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,9 @@
+-- Proactive IRS polling (RefundPollScheduler): when each record is next due; null = terminal, never polled.
+alter table refund_record add column next_poll_at timestamptz;
+
+-- Spread existing non-terminal records over the first hour instead of polling them all at once
+update refund_record
+set next_poll_at = now() + random() * interval '1 hour'
+where status not in ('AVAILABLE', 'REJECTED');
+
+create index ix_refund_next_poll on refund_record(next_poll_at) where next_poll_at is not null;
@@ -0,0 +1,24 @@
+-- DETACH PARTITION ... CONCURRENTLY (retention without an ACCESS EXCLUSIVE lock on outbox_event) is not
+-- allowed while a DEFAULT partition exists, so V11's catch-all goes; OutboxRetentionJob premakes days
+-- ahead (and at startup) instead. Rows it holds move into their own daily partitions first.
+do $$
+declare
+  d date;
+  days date[] := '{}';
+begin
+  for d in select distinct (created_at at time zone 'UTC')::date from outbox_event_default loop
+    execute format('create table %I (like outbox_event including defaults including constraints)',
+      'outbox_event_p' || to_char(d, 'YYYYMMDD'));
+    execute format('insert into %I select * from outbox_event_default where created_at >= %L and created_at < %L',
+      'outbox_event_p' || to_char(d, 'YYYYMMDD'), d::text || ' 00:00:00+00', (d + 1)::text || ' 00:00:00+00');
+    days := days || d;
+  end loop;
+
+  alter table outbox_event detach partition outbox_event_default;
+  drop table outbox_event_default;
+
+  foreach d in array days loop
+    execute format('alter table outbox_event attach partition %I for values from (%L) to (%L)',
+      'outbox_event_p' || to_char(d, 'YYYYMMDD'), d::text || ' 00:00:00+00', (d + 1)::text || ' 00:00:00+00');
+  end loop;
+end $$;
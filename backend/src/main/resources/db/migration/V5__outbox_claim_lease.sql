@@ -0,0 +1,6 @@
+-- Claim-based outbox polling: a worker leases a batch (FOR UPDATE SKIP LOCKED) until locked_until
+alter table outbox_event add column locked_until timestamptz;
+alter table outbox_event add column locked_by varchar(80);
+
+-- Claim scan: oldest unprocessed first
+create index ix_outbox_claim on outbox_event(created_at) where processed_at is null;
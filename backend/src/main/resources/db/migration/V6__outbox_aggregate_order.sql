@@ -0,0 +1,2 @@
+-- Per-aggregate ordering: claim skips rows whose aggregate has an earlier pending row still leased
+create index ix_outbox_aggregate_pending on outbox_event(aggregate_key, created_at) where processed_at is null;
@@ -0,0 +1,21 @@
+-- Failed events wait for next_attempt_at (jittered exponential backoff) instead of the next poll
+alter table outbox_event add column next_attempt_at timestamptz not null default now();
+
+-- Hot claim scan: only pending rows, ordered by when they become runnable
+drop index if exists ix_outbox_claim;
+create index ix_outbox_runnable on outbox_event(next_attempt_at) where processed_at is null;
+
+-- Poison events (attempts cap reached) are moved out of outbox_event
+create table outbox_dead_letter (
+  id bigserial primary key,
+  outbox_event_id bigint not null,
+  event_type varchar(80) not null,
+  aggregate_key varchar(120) not null,
+  payload jsonb not null,
+  created_at timestamptz not null,
+  attempts int not null,
+  last_error text,
+  dead_at timestamptz not null default now()
+);
+
+create index ix_outbox_dead_letter_time on outbox_dead_letter(dead_at desc);
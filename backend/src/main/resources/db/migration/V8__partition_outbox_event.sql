@@ -0,0 +1,64 @@
+-- Daily range partitions on created_at so retention is a partition drop instead of a growing heap + index.
+-- Partition outbox_event_pYYYYMMDD holds [YYYY-MM-DD, +1 day) UTC; OutboxRetentionJob creates upcoming
+-- days ahead of time and drops/detaches old fully-processed ones.
+
+drop index if exists ix_outbox_unprocessed;
+drop index if exists ix_outbox_created;
+drop index if exists ix_outbox_runnable;
+drop index if exists ix_outbox_aggregate_pending;
+
+alter table outbox_event rename to outbox_event_unpartitioned;
+
+create table outbox_event (
+  id bigint not null default nextval('outbox_event_id_seq'),
+  event_type varchar(80) not null,          -- REFUND_STATUS_UPDATED
+  aggregate_key varchar(120) not null,      -- userId:taxYear
+  payload jsonb not null,
+  created_at timestamptz not null default now(),
+  processed_at timestamptz,
+  attempts int not null default 0,
+  last_error text,
+  locked_until timestamptz,
+  locked_by varchar(80),
+  next_attempt_at timestamptz not null default now(),
+  primary key (id, created_at)              -- partition key must be part of the PK
+) partition by range (created_at);
+
+alter sequence outbox_event_id_seq owned by outbox_event.id;
+
+do $$
+declare
+  today date := (now() at time zone 'UTC')::date;
+  d date;
+begin
+  -- Everything before today goes into one partition named after yesterday, so the job's
+  -- "name = last covered day" rule still holds and it ages out like any other day.
+  execute format(
+    'create table %I partition of outbox_event for values from (minvalue) to (%L)',
+    'outbox_event_p' || to_char(today - 1, 'YYYYMMDD'),
+    today::text || ' 00:00:00+00'
+  );
+  for i in 0..7 loop
+    d := today + i;
+    execute format(
+      'create table %I partition of outbox_event for values from (%L) to (%L)',
+      'outbox_event_p' || to_char(d, 'YYYYMMDD'),
+      d::text || ' 00:00:00+00',
+      (d + 1)::text || ' 00:00:00+00'
+    );
+  end loop;
+end $$;
+
+insert into outbox_event
+  (id, event_type, aggregate_key, payload, created_at, processed_at, attempts, last_error,
+   locked_until, locked_by, next_attempt_at)
+select
+  id, event_type, aggregate_key, payload, created_at, processed_at, attempts, last_error,
+  locked_until, locked_by, next_attempt_at
+from outbox_event_unpartitioned;
+
+drop table outbox_event_unpartitioned;
+
+-- Defined on the parent, created on every partition (existing and future)
+create index ix_outbox_runnable on outbox_event(next_attempt_at) where processed_at is null;
+create index ix_outbox_aggregate_pending on outbox_event(aggregate_key, created_at) where processed_at is null;
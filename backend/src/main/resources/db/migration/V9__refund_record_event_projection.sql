@@ -0,0 +1,32 @@
+-- refund_status_event becomes the source of truth; refund_record is a snapshot projection of it.
+-- last_event_id = newest event folded into the snapshot; replay (RefundProjector) resumes after it.
+alter table refund_record add column last_event_id bigint;
+
+-- Earlier releases only wrote an event on status changes (and none when a record was created), so a
+-- snapshot may hold state no event carries. Seed one BACKFILL event with that state so a replay
+-- reproduces today's records.
+insert into refund_status_event
+  (user_id, tax_year, filing_state, from_status, to_status, expected_amount, irs_tracking_id, source, occurred_at)
+select r.user_id, r.tax_year, u.state, e.to_status, r.status, r.expected_amount, r.irs_tracking_id, 'BACKFILL',
+       greatest(r.last_updated_at, coalesce(e.occurred_at, r.last_updated_at))
+from refund_record r
+join app_user u on u.id = r.user_id
+left join lateral (
+  select to_status, expected_amount, irs_tracking_id, occurred_at
+  from refund_status_event
+  where user_id = r.user_id and tax_year = r.tax_year
+  order by id desc
+  limit 1
+) e on true
+where e.to_status is null
+   or e.to_status <> r.status
+   or e.expected_amount is distinct from r.expected_amount
+   or e.irs_tracking_id is distinct from r.irs_tracking_id;
+
+update refund_record r
+set last_event_id = (
+  select max(id) from refund_status_event e where e.user_id = r.user_id and e.tax_year = r.tax_year
+);
+
+-- Per-user replay in append order
+create index ix_rse_user_id on refund_status_event(user_id, id);
@@ -0,0 +1,103 @@
+package com.intuit.taxrefund;
+
+import com.intuit.taxrefund.refund.IrsProps;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.service.BatchingIrsAdapter;
+import com.intuit.taxrefund.refund.service.IrsAdapter;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingIrsAdapterTest {
+
+  // counts upstream calls; every call returns one result per requested user
+  private static class CountingUpstream implements IrsAdapter {
+    final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    public IrsRefundResult fetchMostRecentRefund(Long userId) {
+      throw new AssertionError("single-user call should have been batched");
+    }
+
+    @Override
+    public Map<Long, IrsRefundResult> fetchMostRecentRefunds(Collection<Long> userIds) {
+      calls.incrementAndGet();
+      Map<Long, IrsRefundResult> out = new LinkedHashMap<>();
+      userIds.forEach(id -> out.put(id, new IrsRefundResult(2025, RefundStatus.SENT, BigDecimal.ONE, "T-" + id)));
+      return out;
+    }
+  }
+
+  private static List<IrsAdapter.IrsRefundResult> fetchConcurrently(IrsAdapter adapter, int users) throws Exception {
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<IrsAdapter.IrsRefundResult>> futures = new ArrayList<>();
+      for (long id = 1; id <= users; id++) {
+        long userId = id;
+        futures.add(callers.submit(() -> adapter.fetchMostRecentRefund(userId)));
+      }
+      List<IrsAdapter.IrsRefundResult> results = new ArrayList<>();
+      for (Future<IrsAdapter.IrsRefundResult> f : futures) results.add(f.get());
+      return results;
+    }
+  }
+
+  @Test
+  void concurrentSingleFetches_withinWindow_goUpstreamAsOneBatch() throws Exception {
+    CountingUpstream upstream = new CountingUpstream();
+    try (BatchingIrsAdapter adapter = new BatchingIrsAdapter(
+        upstream, new IrsProps.Batching(true, Duration.ofMillis(200), 100))) {
+
+      List<IrsAdapter.IrsRefundResult> results = fetchConcurrently(adapter, 20);
+
+      // ✅ each caller gets its own user's result
+      for (int i = 0; i < 20; i++) assertEquals("T-" + (i + 1), results.get(i).trackingId());
+      // ✅ one upstream call (allow a straggler batch on a slow machine)
+      assertTrue(upstream.calls.get() <= 2, "upstream calls: " + upstream.calls.get());
+    }
+  }
+
+  @Test
+  void fullBatch_isSentWithoutWaitingForTheWindow() throws Exception {
+    CountingUpstream upstream = new CountingUpstream();
+    try (BatchingIrsAdapter adapter = new BatchingIrsAdapter(
+        upstream, new IrsProps.Batching(true, Duration.ofMinutes(1), 5))) {
+
+      long start = System.nanoTime();
+      fetchConcurrently(adapter, 5);
+
+      // ✅ did not sit out the 1 minute window
+      assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 10);
+      assertEquals(1, upstream.calls.get());
+    }
+  }
+
+  @Test
+  void fullBatch_cancelsItsWindow_soTheNextBatchGetsAFullOne() throws Exception {
+    CountingUpstream upstream = new CountingUpstream();
+    try (BatchingIrsAdapter adapter = new BatchingIrsAdapter(
+        upstream, new IrsProps.Batching(true, Duration.ofMillis(600), 2))) {
+
+      fetchConcurrently(adapter, 2); // full: sent at once
+      Thread.sleep(300);
+
+      long start = System.nanoTime();
+      adapter.fetchMostRecentRefund(3L);
+
+      // ✅ waited its own 600ms window, not the ~300ms left on the first batch's timer
+      assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 500);
+      assertEquals(2, upstream.calls.get());
+    }
+  }
+}
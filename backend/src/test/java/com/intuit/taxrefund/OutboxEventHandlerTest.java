@@ -0,0 +1,123 @@
+package com.intuit.taxrefund;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.ai.repo.RefundEtaPredictionRepository;
+import com.intuit.taxrefund.ml.MlEtaClient;
+import com.intuit.taxrefund.outbox.model.OutboxEvent;
+import com.intuit.taxrefund.outbox.service.OutboxEventHandler;
+import com.intuit.taxrefund.outbox.service.OutboxOutcome;
+import com.intuit.taxrefund.refund.service.RefundCacheWriter;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxEventHandlerTest {
+
+  @Test
+  void handleBatch_makesOneMlCall_andOneBulkInsert() {
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    MlEtaClient ml = mock(MlEtaClient.class);
+    RefundCacheWriter cacheWriter = mock(RefundCacheWriter.class);
+    OutboxEventHandler handler = new OutboxEventHandler(etaRepo, ml, new ObjectMapper(), cacheWriter, mock(PlatformTransactionManager.class));
+
+    List<OutboxEvent> events = List.of(
+        OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025",
+            "{\"userId\":1,\"taxYear\":2025,\"status\":\"PROCESSING\",\"filingState\":\"CA\",\"expectedAmount\":100.00}"),
+        OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "2:2025",
+            "{\"userId\":2,\"taxYear\":2025,\"status\":\"APPROVED\",\"filingState\":\"NY\",\"expectedAmount\":null}")
+    );
+
+    when(ml.predictBatch(anyList())).thenReturn(List.of(
+        new MlEtaClient.PredictResponse(10, "gbrt", "v1", "{}"),
+        new MlEtaClient.PredictResponse(3, "gbrt", "v1", "{}")
+    ));
+
+    Map<OutboxEvent, OutboxOutcome> outcomes = handler.handleBatch(events);
+    assertTrue(outcomes.values().stream().allMatch(o -> o.kind() == OutboxOutcome.Kind.HANDLED));
+
+    // ✅ one round trip, requests in event order
+    verify(ml).predictBatch(argThat(reqs -> reqs.size() == 2
+        && reqs.get(0).userId() == 1L && reqs.get(1).userId() == 2L && reqs.get(1).expectedAmount() == null));
+    verify(ml, never()).predict(anyLong(), anyInt(), anyString(), anyString(), any());
+
+    // ✅ one bulk insert with predictions matched to their events
+    verify(etaRepo).insertIgnoringDuplicates(argThat(rows -> rows.size() == 2
+        && rows.get(0).getEtaDays() == 10 && "APPROVED".equals(rows.get(1).getStatus())));
+    verify(etaRepo, never()).save(any());
+  }
+
+  @Test
+  void handleBatch_whenPredictionExistsForCurrentModel_skipsMlCall() {
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    MlEtaClient ml = mock(MlEtaClient.class);
+    OutboxEventHandler handler = new OutboxEventHandler(etaRepo, ml, new ObjectMapper(), mock(RefundCacheWriter.class), mock(PlatformTransactionManager.class));
+
+    OutboxEvent replayed = OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025",
+        "{\"userId\":1,\"taxYear\":2025,\"status\":\"PROCESSING\",\"filingState\":\"CA\"}");
+
+    RefundEtaPredictionRepository.PredictionKey key = mock(RefundEtaPredictionRepository.PredictionKey.class);
+    when(key.getUserId()).thenReturn(1L);
+    when(key.getTaxYear()).thenReturn(2025);
+    when(key.getStatus()).thenReturn("PROCESSING");
+    when(ml.currentModelVersion()).thenReturn("v1");
+    when(etaRepo.findByModelVersionAndUserIdIn(eq("v1"), anyCollection())).thenReturn(List.of(key));
+
+    Map<OutboxEvent, OutboxOutcome> outcomes = handler.handleBatch(List.of(replayed));
+
+    // ✅ idempotent replay: no ML round trip, no insert
+    assertEquals(OutboxOutcome.Kind.ALREADY_DONE, outcomes.get(replayed).kind());
+    verify(ml, never()).predictBatch(anyList());
+    verify(etaRepo, never()).insertIgnoringDuplicates(anyList());
+  }
+
+  @Test
+  void handleBatch_identicalStatusChanges_arePredictedOnce() {
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    MlEtaClient ml = mock(MlEtaClient.class);
+    OutboxEventHandler handler = new OutboxEventHandler(etaRepo, ml, new ObjectMapper(), mock(RefundCacheWriter.class), mock(PlatformTransactionManager.class));
+
+    String payload = "{\"userId\":1,\"taxYear\":2025,\"status\":\"PROCESSING\",\"filingState\":\"CA\"}";
+    OutboxEvent first = OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025", payload);
+    OutboxEvent repeat = OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025", payload);
+
+    when(ml.predictBatch(anyList())).thenReturn(List.of(new MlEtaClient.PredictResponse(10, "gbrt", "v1", "{}")));
+
+    Map<OutboxEvent, OutboxOutcome> outcomes = handler.handleBatch(List.of(first, repeat));
+
+    // ✅ one inference and one row, both events done
+    verify(ml).predictBatch(argThat(reqs -> reqs.size() == 1));
+    verify(etaRepo).insertIgnoringDuplicates(argThat(rows -> rows.size() == 1));
+    assertEquals(OutboxOutcome.Kind.HANDLED, outcomes.get(first).kind());
+    assertEquals(OutboxOutcome.Kind.HANDLED, outcomes.get(repeat).kind());
+  }
+
+  @Test
+  void handleBatch_callsMlWithoutATransaction_andOpensOneOnlyForTheInsert() {
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    MlEtaClient ml = mock(MlEtaClient.class);
+    RefundCacheWriter cacheWriter = mock(RefundCacheWriter.class);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    OutboxEventHandler handler = new OutboxEventHandler(etaRepo, ml, new ObjectMapper(), cacheWriter, txManager);
+
+    when(ml.predictBatch(anyList())).thenReturn(List.of(new MlEtaClient.PredictResponse(10, "gbrt", "v1", "{}")));
+
+    handler.handleBatch(List.of(OutboxEvent.newEvent("REFUND_STATUS_UPDATED", "1:2025",
+        "{\"userId\":1,\"taxYear\":2025,\"status\":\"PROCESSING\",\"filingState\":\"CA\"}")));
+
+    // ✅ no connection held across the ML call; the insert commits, then the cache is rebuilt once
+    var order = inOrder(ml, txManager, etaRepo, cacheWriter);
+    order.verify(ml).predictBatch(anyList());
+    order.verify(txManager).getTransaction(any());
+    order.verify(etaRepo).insertIgnoringDuplicates(anyList());
+    order.verify(txManager).commit(any());
+    order.verify(cacheWriter).writeThrough(1L);
+    verify(txManager, times(1)).getTransaction(any());
+    verify(cacheWriter, times(1)).writeThrough(1L);
+  }
+}
@@ -0,0 +1,51 @@
+package com.intuit.taxrefund;
+
+import com.intuit.taxrefund.ml.MlEtaClient;
+import com.intuit.taxrefund.outbox.OutboxProps;
+import com.intuit.taxrefund.outbox.repo.OutboxEventRepository.ClaimedEvent;
+import com.intuit.taxrefund.outbox.service.OutboxWorker;
+import com.intuit.taxrefund.outbox.service.OutboxWorkerTx;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxWorkerTest {
+
+  private static ClaimedEvent claimed(long id, String aggregateKey, Instant createdAt) {
+    ClaimedEvent e = mock(ClaimedEvent.class);
+    when(e.getId()).thenReturn(id);
+    when(e.getAggregateKey()).thenReturn(aggregateKey);
+    when(e.getCreatedAt()).thenReturn(createdAt);
+    return e;
+  }
+
+  @Test
+  void poll_batchesWholeAggregatesInOrder_andRunsAggregatesSeparately() {
+    OutboxWorkerTx tx = mock(OutboxWorkerTx.class);
+    MlEtaClient ml = mock(MlEtaClient.class);
+    when(ml.isCallPermitted()).thenReturn(true);
+    OutboxWorker worker = new OutboxWorker(tx, ml, new OutboxProps(50, Duration.ofMinutes(1), 20, 4, false, 50, Duration.ofSeconds(5), Duration.ofMinutes(30), Duration.ofHours(6), null));
+
+    Instant t0 = Instant.now();
+    // returned out of order on purpose: RETURNING does not guarantee order
+    List<ClaimedEvent> batch = List.of(
+        claimed(2L, "1:2025", t0.plusSeconds(1)),
+        claimed(1L, "1:2025", t0),
+        claimed(3L, "2:2025", t0)
+    );
+    when(tx.claimBatch(anyString())).thenReturn(batch, List.of());
+
+    worker.poll();
+
+    // ✅ both events of one aggregate in the same chunk, in created_at order
+    verify(tx).processBatch(eq(List.of(1L, 2L)), anyString());
+
+    // ✅ other aggregate handled in its own chunk (in parallel)
+    verify(tx).processBatch(eq(List.of(3L)), anyString());
+  }
+}
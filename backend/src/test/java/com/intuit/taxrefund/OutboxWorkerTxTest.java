@@ -0,0 +1,213 @@
+package com.intuit.taxrefund;
+
+import com.intuit.taxrefund.outbox.OutboxProps;
+import com.intuit.taxrefund.outbox.model.OutboxEvent;
+import com.intuit.taxrefund.outbox.repo.OutboxDeadLetterRepository;
+import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
+import com.intuit.taxrefund.outbox.service.OutboxEventHandler;
+import com.intuit.taxrefund.outbox.service.OutboxOutcome;
+import com.intuit.taxrefund.outbox.service.OutboxWorkerTx;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxWorkerTxTest {
+
+  private static final OutboxProps PROPS = new OutboxProps(50, Duration.ofMinutes(1), 20, 4, false, 50, Duration.ofSeconds(5), Duration.ofMinutes(30), Duration.ofHours(6), null);
+
+  @Test
+  void claimBatch_leasesBoundedBatch_toThisWorker() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, mock(OutboxDeadLetterRepository.class), mock(OutboxEventHandler.class), PROPS, mock(PlatformTransactionManager.class));
+    OutboxEventRepository.ClaimedEvent claimed = mock(OutboxEventRepository.ClaimedEvent.class);
+    when(repo.lockClaimableAggregates(20, 50)).thenReturn(List.of("1:2025"));
+    when(repo.claimBatch(eq(List.of("1:2025")), eq("w1"), any(Instant.class), eq(20), eq(50))).thenReturn(List.of(claimed));
+
+    assertEquals(List.of(claimed), tx.claimBatch("w1"));
+
+    // ✅ only rows of aggregates this claim holds; lease expiry is in the future by roughly leaseDuration
+    verify(repo).claimBatch(eq(List.of("1:2025")), eq("w1"),
+        argThat(t -> t.isAfter(Instant.now().plusSeconds(50))), eq(20), eq(50));
+  }
+
+  @Test
+  void claimBatch_whenEveryCandidateAggregateIsHeldElsewhere_leasesNothing() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, mock(OutboxDeadLetterRepository.class), mock(OutboxEventHandler.class), PROPS, mock(PlatformTransactionManager.class));
+    when(repo.lockClaimableAggregates(20, 50)).thenReturn(List.of());
+
+    // ✅ another node's uncommitted claim holds them: skip instead of leasing rows behind it
+    assertEquals(List.of(), tx.claimBatch("w1"));
+    verify(repo, never()).claimBatch(any(), any(), any(), anyInt(), anyInt());
+  }
+
+  @Test
+  void processBatch_handlesOnlyEventsStillClaimedByThisWorker() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxEventHandler handler = mock(OutboxEventHandler.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, mock(OutboxDeadLetterRepository.class), handler, PROPS, mock(PlatformTransactionManager.class));
+
+    OutboxEvent mine = mock(OutboxEvent.class);
+    when(mine.getId()).thenReturn(7L);
+    when(mine.isClaimedBy("w1")).thenReturn(true);
+
+    OutboxEvent lost = mock(OutboxEvent.class);
+    when(lost.getId()).thenReturn(8L);
+    when(lost.isClaimedBy("w1")).thenReturn(false);
+
+    when(repo.findAllById(List.of(7L, 8L))).thenReturn(List.of(lost, mine));
+    when(handler.handleBatch(List.of(mine))).thenReturn(Map.of(mine, OutboxOutcome.HANDLED));
+
+    tx.processBatch(List.of(7L, 8L), "w1");
+
+    // ✅ one handler call for the chunk, without the event another worker now owns
+    verify(handler).handleBatch(List.of(mine));
+    verify(mine).markProcessed();
+    verify(lost, never()).markProcessed();
+  }
+
+  private static OutboxEvent claimedEvent(long id, int attemptsAfterFailure) {
+    OutboxEvent evt = mock(OutboxEvent.class);
+    when(evt.getId()).thenReturn(id);
+    when(evt.isClaimedBy("w1")).thenReturn(true);
+    when(evt.getAttempts()).thenReturn(attemptsAfterFailure);
+    return evt;
+  }
+
+  @Test
+  void processBatch_onFailure_schedulesJitteredExponentialBackoff() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxDeadLetterRepository deadLetters = mock(OutboxDeadLetterRepository.class);
+    OutboxEventHandler handler = mock(OutboxEventHandler.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, deadLetters, handler, PROPS, mock(PlatformTransactionManager.class));
+
+    OutboxEvent evt = claimedEvent(7L, 3);
+    when(repo.findAllById(List.of(7L))).thenReturn(List.of(evt));
+    when(handler.handleBatch(anyList()))
+        .thenReturn(Map.of(evt, OutboxOutcome.failed(new IllegalStateException("ML 500"))));
+
+    Instant before = Instant.now();
+    tx.processBatch(List.of(7L), "w1");
+
+    // ✅ 3rd failure: 5s * 2^2 = 20s, jittered into [10s, 20s]
+    verify(evt).bumpAttempt("ML 500");
+    verify(evt).retryAt(argThat(t -> !t.isBefore(before.plusSeconds(10)) && !t.isAfter(Instant.now().plusSeconds(20))));
+    verify(evt).releaseClaim();
+    verifyNoInteractions(deadLetters);
+  }
+
+  @Test
+  void processBatch_atAttemptCap_movesEventToDeadLetter() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxDeadLetterRepository deadLetters = mock(OutboxDeadLetterRepository.class);
+    OutboxEventHandler handler = mock(OutboxEventHandler.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, deadLetters, handler, PROPS, mock(PlatformTransactionManager.class));
+
+    OutboxEvent evt = claimedEvent(7L, 20);
+    when(repo.findAllById(List.of(7L))).thenReturn(List.of(evt));
+    when(handler.handleBatch(anyList()))
+        .thenReturn(Map.of(evt, OutboxOutcome.failed(new IllegalStateException("poison"))));
+
+    tx.processBatch(List.of(7L), "w1");
+
+    // ✅ copied to the dead-letter table and removed from the hot outbox table
+    verify(deadLetters).saveAll(argThat(rows -> rows.iterator().hasNext()));
+    verify(repo).deleteAll(List.of(evt));
+    verify(evt, never()).retryAt(any());
+  }
+
+  @Test
+  void processBatch_deferred_retriesSoonWithoutAnAttempt_untilMaxDeferredAge_thenDeadLetters() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxDeadLetterRepository deadLetters = mock(OutboxDeadLetterRepository.class);
+    OutboxEventHandler handler = mock(OutboxEventHandler.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, deadLetters, handler, PROPS, mock(PlatformTransactionManager.class));
+
+    OutboxEvent fresh = claimedEvent(7L, 0);
+    when(fresh.getCreatedAt()).thenReturn(Instant.now().minus(Duration.ofMinutes(10)));
+    OutboxEvent stale = claimedEvent(8L, 0);
+    when(stale.getCreatedAt()).thenReturn(Instant.now().minus(Duration.ofHours(7)));
+    when(repo.findAllById(List.of(7L, 8L))).thenReturn(List.of(fresh, stale));
+    when(handler.handleBatch(anyList())).thenReturn(Map.of(
+        fresh, OutboxOutcome.deferred("ML timed out"),
+        stale, OutboxOutcome.deferred("ML timed out")
+    ));
+
+    tx.processBatch(List.of(7L, 8L), "w1");
+
+    // ✅ a deferral is not an attempt, and a young event retries after backoffBase
+    verify(fresh).defer("ML timed out");
+    verify(fresh, never()).bumpAttempt(any());
+    verify(fresh).retryAt(any());
+    // ✅ one deferred past maxDeferredAge leaves the hot table instead of retrying forever
+    verify(stale, never()).retryAt(any());
+    verify(deadLetters).saveAll(argThat(rows -> rows.iterator().hasNext()));
+    verify(repo).deleteAll(List.of(stale));
+    verify(repo).saveAll(List.of(fresh));
+  }
+
+  @Test
+  void processBatch_alreadyDone_isProcessed_andModelNotReady_isNotRetried() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxEventHandler handler = mock(OutboxEventHandler.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, mock(OutboxDeadLetterRepository.class), handler, PROPS, mock(PlatformTransactionManager.class));
+
+    OutboxEvent replayed = claimedEvent(7L, 0);
+    OutboxEvent noModel = claimedEvent(8L, 1);
+    when(repo.findAllById(List.of(7L, 8L))).thenReturn(List.of(replayed, noModel));
+    when(handler.handleBatch(anyList())).thenReturn(Map.of(
+        replayed, OutboxOutcome.ALREADY_DONE,
+        noModel, OutboxOutcome.modelNotReady("Model not trained yet")
+    ));
+
+    tx.processBatch(List.of(7L, 8L), "w1");
+
+    // ✅ decided from the outcome kind, not the error text
+    verify(replayed).markProcessed();
+    verify(replayed, never()).bumpAttempt(any());
+    verify(noModel).bumpAttempt("Model not trained yet");
+    verify(noModel).markProcessed();
+    verify(noModel, never()).retryAt(any());
+  }
+
+  @Test
+  void processBatch_databaseErrorInHandler_isRecordedInItsOwnTransaction_thenDeadLettered() {
+    OutboxEventRepository repo = mock(OutboxEventRepository.class);
+    OutboxDeadLetterRepository deadLetters = mock(OutboxDeadLetterRepository.class);
+    OutboxEventHandler handler = mock(OutboxEventHandler.class);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    OutboxWorkerTx tx = new OutboxWorkerTx(repo, deadLetters, handler, PROPS, txManager);
+
+    // the prediction insert fails: the handler's transaction is rolled back and the exception escapes
+    when(handler.handleBatch(anyList())).thenThrow(new DataIntegrityViolationException("insert failed"));
+
+    OutboxEvent evt = claimedEvent(7L, 1);
+    when(repo.findAllById(List.of(7L))).thenReturn(List.of(evt));
+    tx.processBatch(List.of(7L), "w1");
+
+    // ✅ attempt recorded and backed off, committed in a separate transaction
+    verify(evt).bumpAttempt("insert failed");
+    verify(evt).retryAt(any());
+    verify(repo).saveAll(List.of(evt));
+    verify(txManager).commit(any());
+    verifyNoInteractions(deadLetters);
+
+    // ✅ the same failure at the attempt cap ends in the dead-letter table
+    OutboxEvent poison = claimedEvent(8L, 20);
+    when(repo.findAllById(List.of(8L))).thenReturn(List.of(poison));
+    tx.processBatch(List.of(8L), "w1");
+
+    verify(poison).bumpAttempt("insert failed");
+    verify(deadLetters).saveAll(argThat(rows -> rows.iterator().hasNext()));
+    verify(repo).deleteAll(List.of(poison));
+  }
+}
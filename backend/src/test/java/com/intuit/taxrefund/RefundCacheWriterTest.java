@@ -0,0 +1,55 @@
+package com.intuit.taxrefund;
+
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.cache.RefundStatusCache;
+import com.intuit.taxrefund.refund.service.RefundCacheWriter;
+import com.intuit.taxrefund.refund.service.RefundReadModel;
+import com.intuit.taxrefund.refund.stream.RefundUpdateStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+class RefundCacheWriterTest {
+
+  @Test
+  void writeThrough_insideTransaction_putsAndPushesOncePerUser_afterCommit() {
+    RefundReadModel readModel = mock(RefundReadModel.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
+    RefundUpdateStream updates = mock(RefundUpdateStream.class);
+    RefundCacheWriter writer = new RefundCacheWriter(readModel, cache, updates);
+
+    RefundStatusResponse resp = new RefundStatusResponse(
+        2025, "APPROVED", Instant.now(), new BigDecimal("10.00"), "IRS-1", Instant.now(), null
+    );
+    when(readModel.find(1L)).thenReturn(Optional.of(resp));
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      // status change + saved ETA in the same transaction
+      writer.writeThrough(1L);
+      writer.writeThrough(1L);
+
+      // ✅ nothing cached before commit
+      verifyNoInteractions(cache, updates);
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // ✅ one rebuild, written through (not deleted)
+    verify(cache, times(1)).put(1L, resp);
+    verify(cache, never()).evict(anyLong());
+
+    // ✅ open streams get the same response
+    verify(updates, times(1)).publish(1L, resp);
+  }
+}
@@ -0,0 +1,114 @@
+package com.intuit.taxrefund;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository.DuePoll;
+import com.intuit.taxrefund.refund.service.RefundPollQueue;
+import com.intuit.taxrefund.refund.service.RefundPollScheduler;
+import com.intuit.taxrefund.refund.service.RefundRefreshService;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefundPollSchedulerTest {
+
+  private static RefundProps props(boolean enabled) {
+    return new RefundProps(null, null, null, null, new RefundProps.Polling(enabled, 2, Map.of(
+        RefundStatus.RECEIVED, Duration.ofHours(1),
+        RefundStatus.SENT, Duration.ofMinutes(5)
+    ), new RefundProps.Queue(
+        Duration.ofHours(1), Duration.ofMinutes(2), Duration.ofHours(6), Set.of(RefundStatus.AVAILABLE)
+    )));
+  }
+
+  private static DuePoll due(long userId, String status) {
+    return new DuePoll() {
+      public Long getUserId() { return userId; }
+      public String getStatus() { return status; }
+    };
+  }
+
+  @Test
+  void poll_feedsScheduleIntoQueue_andRefreshesByQueuePriority_inBatches() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundPollQueue queue = mock(RefundPollQueue.class);
+    RefundPollScheduler scheduler = new RefundPollScheduler(refundRepo, refresher, queue, props(true), new ObjectMapper());
+
+    List<DuePoll> scheduled = List.of(due(1, "RECEIVED"), due(2, "SENT"));
+    when(refundRepo.claimDuePolls(anyString(), eq(2))).thenReturn(scheduled).thenReturn(List.of());
+    when(queue.offer(any())).thenReturn(true);
+    // a promoted (hot) user 9 comes out ahead of the scheduled ones
+    when(queue.pollDue(2)).thenReturn(List.of(9L, 1L)).thenReturn(List.of(2L));
+
+    scheduler.poll();
+
+    // ✅ cadence passed as JSON; terminal statuses are simply absent
+    verify(refundRepo, atLeastOnce()).claimDuePolls("{\"RECEIVED\":\"PT1H\",\"SENT\":\"PT5M\"}", 2);
+    verify(queue).offer(scheduled);
+    verify(refresher).refreshAll(Set.of(9L, 1L));
+    verify(refresher).refreshAll(Set.of(2L));
+  }
+
+  @Test
+  void poll_whenRedisDown_refreshesScheduledRecordsDirectly() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundPollQueue queue = mock(RefundPollQueue.class);
+    RefundPollScheduler scheduler = new RefundPollScheduler(refundRepo, refresher, queue, props(true), new ObjectMapper());
+
+    when(refundRepo.claimDuePolls(anyString(), eq(2))).thenReturn(List.of(due(1, "RECEIVED")));
+    when(queue.offer(any())).thenReturn(false);
+
+    scheduler.poll();
+
+    verify(refresher).refreshAll(Set.of(1L));
+    verify(queue, never()).pollDue(anyInt());
+  }
+
+  @Test
+  void poll_whenDisabled_claimsNothing() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundPollQueue queue = mock(RefundPollQueue.class);
+
+    new RefundPollScheduler(refundRepo, refresher, queue, props(false), new ObjectMapper()).poll();
+
+    verifyNoInteractions(refundRepo, refresher, queue);
+  }
+
+  @Test
+  void scheduledPoll_drainsOffTheSchedulingThread_oneDrainAtATime() throws Exception {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundPollQueue queue = mock(RefundPollQueue.class);
+    RefundPollScheduler scheduler = new RefundPollScheduler(refundRepo, refresher, queue, props(true), new ObjectMapper());
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(refundRepo.claimDuePolls(anyString(), eq(2))).thenAnswer(inv -> {
+      started.countDown();
+      release.await();
+      return List.of();
+    });
+
+    // ✅ returns while the drain is still blocked, and a second tick does not start another
+    scheduler.scheduledPoll();
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    scheduler.scheduledPoll();
+    release.countDown();
+
+    verify(refundRepo, timeout(5000).times(1)).claimDuePolls(anyString(), eq(2));
+  }
+}
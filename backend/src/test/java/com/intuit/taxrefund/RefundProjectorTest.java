@@ -0,0 +1,72 @@
+package com.intuit.taxrefund;
+
+import com.intuit.taxrefund.auth.model.AppUser;
+import com.intuit.taxrefund.auth.model.Role;
+import com.intuit.taxrefund.auth.repo.UserRepository;
+import com.intuit.taxrefund.refund.model.RefundRecord;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.model.RefundStatusEvent;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
+import com.intuit.taxrefund.refund.service.RefundCacheWriter;
+import com.intuit.taxrefund.refund.service.RefundProjector;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefundProjectorTest {
+
+  private static AppUser user1() {
+    AppUser user = new AppUser(
+        "u1@example.com", "hash", "Yang", "Wang", null, "Mountain View", "CA", "555-555-5555", Role.USER
+    );
+    user.setIdForTest(1L);
+    return user;
+  }
+
+  private static RefundStatusEvent event(long id, RefundStatus from, RefundStatus to, String amount) {
+    RefundStatusEvent e = RefundStatusEvent.of(1L, 2025, "CA", from, to, new BigDecimal(amount), "IRS-1", "IRS");
+    e.setIdForTest(id);
+    return e;
+  }
+
+  @Test
+  void replay_appliesOnlyEventsAfterSnapshot_unlessFull() {
+    RefundStatusEventRepository eventRepo = mock(RefundStatusEventRepository.class);
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundCacheWriter cacheWriter = mock(RefundCacheWriter.class);
+    RefundProjector projector = new RefundProjector(eventRepo, refundRepo, mock(UserRepository.class), cacheWriter);
+
+    // Snapshot has folded event 1; event 2 was appended but never projected
+    RefundRecord snapshot = new RefundRecord(user1(), 2025, RefundStatus.RECEIVED);
+    snapshot.apply(event(1, null, RefundStatus.RECEIVED, "100.00"));
+    when(refundRepo.lockByUserId(1L)).thenReturn(List.of(snapshot));
+    when(eventRepo.findByUserIdOrderByIdAsc(1L)).thenReturn(List.of(
+        event(1, null, RefundStatus.RECEIVED, "100.00"),
+        event(2, RefundStatus.RECEIVED, RefundStatus.APPROVED, "120.00")
+    ));
+
+    // ✅ incremental: only event 2
+    assertEquals(1, projector.replay(1L, false));
+    assertEquals(RefundStatus.APPROVED, snapshot.getStatus());
+    assertEquals(new BigDecimal("120.00"), snapshot.getExpectedAmount());
+    assertEquals(2L, snapshot.getLastEventId());
+    verify(cacheWriter).writeThrough(1L);
+
+    // ✅ up to date: nothing applied, nothing saved
+    clearInvocations(refundRepo, cacheWriter);
+    assertEquals(0, projector.replay(1L, false));
+    verify(refundRepo, never()).saveAll(any());
+    verify(cacheWriter, never()).writeThrough(anyLong());
+
+    // ✅ full: the whole history is folded again to the same state
+    assertEquals(2, projector.replay(1L, true));
+    assertEquals(RefundStatus.APPROVED, snapshot.getStatus());
+    assertEquals(2L, snapshot.getLastEventId());
+  }
+}
@@ -0,0 +1,247 @@
+package com.intuit.taxrefund;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.auth.model.AppUser;
+import com.intuit.taxrefund.auth.model.Role;
+import com.intuit.taxrefund.auth.repo.UserRepository;
+import com.intuit.taxrefund.outbox.model.OutboxEvent;
+import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
+import com.intuit.taxrefund.outbox.service.OutboxNotifier;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.cache.RefundCheckLog;
+import com.intuit.taxrefund.refund.model.RefundRecord;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.model.RefundStatusEvent;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
+import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
+import com.intuit.taxrefund.refund.service.IrsAdapter;
+import com.intuit.taxrefund.refund.service.RefundCacheWriter;
+import com.intuit.taxrefund.refund.service.RefundRefreshService;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefundRefreshServiceTest {
+
+  private static final RefundProps PROPS = new RefundProps(
+      null, null, null, null,
+      new RefundProps.Polling(true, 200, Map.of(RefundStatus.PROCESSING, Duration.ofMinutes(30)), null)
+  );
+
+  private static AppUser user1() {
+    AppUser user = new AppUser(
+        "u1@example.com",
+        "hash",
+        "Yang",
+        "Wang",
+        null,
+        "Mountain View",
+        "CA",
+        "555-555-5555",
+        Role.USER
+    );
+    user.setIdForTest(1L);
+    return user;
+  }
+
+  @Test
+  void refresh_whenStatusChanges_writesEventAndOutbox_andWritesCacheThrough() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    UserRepository userRepo = mock(UserRepository.class);
+    IrsAdapter irs = mock(IrsAdapter.class);
+    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
+    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
+    OutboxNotifier outboxNotifier = mock(OutboxNotifier.class);
+    RefundCacheWriter cacheWriter = mock(RefundCacheWriter.class);
+    RefundCheckLog checks = mock(RefundCheckLog.class);
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    RefundRefreshService svc = new RefundRefreshService(
+        refundRepo, userRepo, irs, statusEventRepo, outboxRepo, outboxNotifier, cacheWriter, checks, PROPS, objectMapper, mock(PlatformTransactionManager.class));
+
+    // Existing record oldStatus = RECEIVED
+    RefundRecord existing = new RefundRecord(user1(), 2025, RefundStatus.RECEIVED);
+    when(refundRepo.findForUpdateByUserIdAndTaxYear(1L, 2025)).thenReturn(Optional.of(existing));
+    when(refundRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+    // IRS says PROCESSING => status change RECEIVED -> PROCESSING
+    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
+        2025, RefundStatus.PROCESSING, new BigDecimal("999.99"), "IRS-1"
+    ));
+
+    RefundRecord saved = svc.refresh(1L);
+
+    assertEquals(RefundStatus.PROCESSING, saved.getStatus());
+    assertEquals(new BigDecimal("999.99"), saved.getExpectedAmount());
+    assertEquals("IRS-1", saved.getIrsTrackingId());
+    // ✅ re-polled on the new status' cadence
+    assertTrue(saved.getNextPollAt().isAfter(Instant.now().plus(Duration.ofMinutes(29))));
+
+    // ✅ Event + outbox + cache write-through on status change
+    verify(statusEventRepo, times(1)).save(any(RefundStatusEvent.class));
+    verify(outboxRepo, times(1)).save(any(OutboxEvent.class));
+    verify(outboxNotifier, times(1)).notifyInserted();
+    verify(cacheWriter, times(1)).writeThrough(1L);
+  }
+
+  @Test
+  void refresh_whenNothingChanges_doesNotWriteEventOrOutbox_orTouchCache() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    UserRepository userRepo = mock(UserRepository.class);
+    IrsAdapter irs = mock(IrsAdapter.class);
+    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
+    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
+    OutboxNotifier outboxNotifier = mock(OutboxNotifier.class);
+    RefundCacheWriter cacheWriter = mock(RefundCacheWriter.class);
+    RefundCheckLog checks = mock(RefundCheckLog.class);
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    RefundRefreshService svc = new RefundRefreshService(
+        refundRepo, userRepo, irs, statusEventRepo, outboxRepo, outboxNotifier, cacheWriter, checks, PROPS, objectMapper, mock(PlatformTransactionManager.class));
+
+    // Snapshot already holds what IRS reports (amount differs only in scale)
+    RefundRecord existing = new RefundRecord(user1(), 2025, RefundStatus.PROCESSING);
+    existing.apply(RefundStatusEvent.of(1L, 2025, "CA", null, RefundStatus.PROCESSING, new BigDecimal("200"), "IRS-X", "IRS"));
+    when(refundRepo.findForUpdateByUserIdAndTaxYear(1L, 2025)).thenReturn(Optional.of(existing));
+    when(refundRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
+        2025, RefundStatus.PROCESSING, new BigDecimal("200.00"), "IRS-X"
+    ));
+
+    svc.refresh(1L);
+
+    // ✅ no event/outbox/cache write, and no row UPDATE: only the batched check time moves
+    verify(refundRepo, never()).save(any());
+    verify(checks, times(1)).markChecked(1L);
+    verify(statusEventRepo, never()).save(any());
+    verify(outboxRepo, never()).save(any());
+    verify(outboxNotifier, never()).notifyInserted();
+    verify(cacheWriter, never()).writeThrough(anyLong());
+  }
+
+  @Test
+  void refresh_whenOnlyAmountChanges_appendsEvent_andCaches_withoutOutbox() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    UserRepository userRepo = mock(UserRepository.class);
+    IrsAdapter irs = mock(IrsAdapter.class);
+    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
+    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
+    OutboxNotifier outboxNotifier = mock(OutboxNotifier.class);
+    RefundCacheWriter cacheWriter = mock(RefundCacheWriter.class);
+    RefundCheckLog checks = mock(RefundCheckLog.class);
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    RefundRefreshService svc = new RefundRefreshService(
+        refundRepo, userRepo, irs, statusEventRepo, outboxRepo, outboxNotifier, cacheWriter, checks, PROPS, objectMapper, mock(PlatformTransactionManager.class));
+
+    RefundRecord existing = new RefundRecord(user1(), 2025, RefundStatus.PROCESSING);
+    when(refundRepo.findForUpdateByUserIdAndTaxYear(1L, 2025)).thenReturn(Optional.of(existing));
+    when(refundRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
+        2025, RefundStatus.PROCESSING, new BigDecimal("200.00"), "IRS-X"
+    ));
+
+    RefundRecord saved = svc.refresh(1L);
+
+    // ✅ the correction is an event (source of truth) and reaches the snapshot + cache
+    verify(statusEventRepo, times(1)).save(argThat(e ->
+        e.getFromStatus() == RefundStatus.PROCESSING && e.getToStatus() == RefundStatus.PROCESSING));
+    assertEquals(new BigDecimal("200.00"), saved.getExpectedAmount());
+    verify(cacheWriter, times(1)).writeThrough(1L);
+
+    // ✅ same status => no new ETA prediction
+    verify(outboxRepo, never()).save(any());
+    verify(outboxNotifier, never()).notifyInserted();
+  }
+
+  @Test
+  void concurrentRefreshes_serializeOnTheSnapshotLock_andAppendOneEvent() throws Exception {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    IrsAdapter irs = mock(IrsAdapter.class);
+    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
+    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
+    RefundCheckLog checks = mock(RefundCheckLog.class);
+
+    RefundRefreshService svc = new RefundRefreshService(
+        refundRepo, mock(UserRepository.class), irs, statusEventRepo, outboxRepo, mock(OutboxNotifier.class),
+        mock(RefundCacheWriter.class), checks, PROPS, new ObjectMapper().findAndRegisterModules(), mock(PlatformTransactionManager.class));
+
+    // The row lock: taken by the locking read, released when the transaction ends (its last call here)
+    RefundRecord row = new RefundRecord(user1(), 2025, RefundStatus.RECEIVED);
+    Semaphore rowLock = new Semaphore(1);
+    when(refundRepo.findForUpdateByUserIdAndTaxYear(1L, 2025)).thenAnswer(inv -> {
+      rowLock.acquire();
+      return Optional.of(row);
+    });
+    when(refundRepo.save(any())).thenAnswer(inv -> {
+      rowLock.release();
+      return inv.getArgument(0);
+    });
+    doAnswer(inv -> {
+      rowLock.release();
+      return null;
+    }).when(checks).markChecked(1L);
+
+    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
+        2025, RefundStatus.PROCESSING, new BigDecimal("999.99"), "IRS-1"
+    ));
+
+    try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+      Future<RefundRecord> a = callers.submit(() -> svc.refresh(1L));
+      Future<RefundRecord> b = callers.submit(() -> svc.refresh(1L));
+      a.get();
+      b.get();
+    }
+
+    // ✅ the second refresh saw the first one's change: one event + outbox row, the other only a check
+    verify(statusEventRepo, times(1)).save(any(RefundStatusEvent.class));
+    verify(outboxRepo, times(1)).save(any(OutboxEvent.class));
+    verify(checks, times(1)).markChecked(1L);
+    verify(refundRepo, never()).findByUserIdAndTaxYear(anyLong(), anyInt());
+    assertEquals(RefundStatus.PROCESSING, row.getStatus());
+  }
+
+  @Test
+  void refresh_callsIrsBeforeOpeningTheTransaction() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    IrsAdapter irs = mock(IrsAdapter.class);
+    PlatformTransactionManager txManager = mock(PlatformTransactionManager.class);
+    when(txManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+    RefundRefreshService svc = new RefundRefreshService(
+        refundRepo, mock(UserRepository.class), irs, mock(RefundStatusEventRepository.class), mock(OutboxEventRepository.class),
+        mock(OutboxNotifier.class), mock(RefundCacheWriter.class), mock(RefundCheckLog.class), PROPS,
+        new ObjectMapper().findAndRegisterModules(), txManager);
+
+    RefundRecord existing = new RefundRecord(user1(), 2025, RefundStatus.PROCESSING);
+    when(refundRepo.findForUpdateByUserIdAndTaxYear(1L, 2025)).thenReturn(Optional.of(existing));
+    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
+        2025, RefundStatus.PROCESSING, null, null
+    ));
+
+    svc.refresh(1L);
+
+    // ✅ a slow (batched) IRS fetch holds no connection or snapshot lock; the locked read comes after it, in the transaction
+    var order = inOrder(irs, txManager, refundRepo);
+    order.verify(irs).fetchMostRecentRefund(1L);
+    order.verify(txManager).getTransaction(any());
+    order.verify(refundRepo).findForUpdateByUserIdAndTaxYear(1L, 2025);
+    order.verify(txManager).commit(any());
+  }
+}
@@ -1,30 +1,36 @@
 package com.intuit.taxrefund;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.intuit.taxrefund.ai.model.RefundEtaPrediction;
 import com.intuit.taxrefund.ai.repo.RefundEtaPredictionRepository;
 import com.intuit.taxrefund.auth.jwt.JwtService;
 import com.intuit.taxrefund.auth.model.AppUser;
 import com.intuit.taxrefund.auth.model.Role;
-import com.intuit.taxrefund.auth.repo.UserRepository;
-import com.intuit.taxrefund.outbox.model.OutboxEvent;
-import com.intuit.taxrefund.outbox.repo.OutboxEventRepository;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.api.dto.BulkRefundStatusRequest;
 import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.cache.CachedRefundStatus;
+import com.intuit.taxrefund.refund.cache.RedisLease;
+import com.intuit.taxrefund.refund.cache.RefundCheckLog;
+import com.intuit.taxrefund.refund.cache.RefundStatusCache;
+import com.intuit.taxrefund.refund.cache.RefundStatusCodec;
 import com.intuit.taxrefund.refund.model.RefundRecord;
 import com.intuit.taxrefund.refund.model.RefundStatus;
 import com.intuit.taxrefund.refund.model.RefundStatusEvent;
+import com.intuit.taxrefund.refund.repo.RefundRecordBulkRepository;
 import com.intuit.taxrefund.refund.repo.RefundRecordRepository;
-import com.intuit.taxrefund.refund.repo.RefundStatusEventRepository;
-import com.intuit.taxrefund.refund.service.IrsAdapter;
+import com.intuit.taxrefund.refund.service.RefundReadModel;
+import com.intuit.taxrefund.refund.service.RefundPollQueue;
+import com.intuit.taxrefund.refund.service.RefundRefreshService;
 import com.intuit.taxrefund.refund.service.RefundService;
 import org.junit.jupiter.api.Test;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,6 +38,20 @@ import static org.mockito.Mockito.*;
 
 class RefundServiceTest {
 
+  private static final RefundProps PROPS = new RefundProps(
+      new RefundProps.Cache(
+          Duration.ofSeconds(30),
+          Duration.ofMinutes(5),
+          new RefundProps.Near(1_000_000L, Duration.ofSeconds(10)),
+          Duration.ofSeconds(3),
+          Duration.ofMillis(10)
+      ),
+      new RefundProps.Refresh(Duration.ofMinutes(5)),
+      new RefundProps.Stream(Duration.ofMinutes(30), Duration.ofSeconds(25)),
+      new RefundProps.Projection(8),
+      new RefundProps.Polling(false, 200, Map.of(), null)
+  );
+
   private static AppUser user1() {
     AppUser user = new AppUser(
         "u1@example.com",
@@ -48,51 +68,24 @@ class RefundServiceTest {
     return user;
   }
 
-  private static RefundService newSvc(
-      RefundRecordRepository refundRepo,
-      UserRepository userRepo,
-      IrsAdapter irs,
-      RefundStatusEventRepository statusEventRepo,
-      OutboxEventRepository outboxRepo,
-      RefundEtaPredictionRepository etaRepo,
-      StringRedisTemplate redis,
-      ObjectMapper objectMapper
-  ) {
-    return new RefundService(refundRepo, userRepo, irs, statusEventRepo, outboxRepo, etaRepo, redis, objectMapper);
+  private static RedisLease freeLease() {
+    RedisLease lease = mock(RedisLease.class);
+    when(lease.tryAcquire(anyString(), any())).thenReturn("token");
+    return lease;
   }
 
   @Test
-  void latest_whenStatusChanges_writesEventAndOutbox_deletesCache_readsEta_andCachesResponse() throws Exception {
+  void latest_whenCacheMiss_readsRecordAndEta_withoutIrsOrWrites_andCachesResponse() {
     RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
-    UserRepository userRepo = mock(UserRepository.class);
-    IrsAdapter irs = mock(IrsAdapter.class);
-
-    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
-    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
     RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
 
-    StringRedisTemplate redis = mock(StringRedisTemplate.class);
-    @SuppressWarnings("unchecked")
-    ValueOperations<String, String> valueOps = mock(ValueOperations.class);
-    when(redis.opsForValue()).thenReturn(valueOps);
-    when(valueOps.get("refund:latest:1")).thenReturn(null); // no cache hit
-
-    // ✅ key fix: register Java time module (Instant)
-    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
-
-    RefundService svc = newSvc(refundRepo, userRepo, irs, statusEventRepo, outboxRepo, etaRepo, redis, objectMapper);
-
-    AppUser user = user1();
-    when(userRepo.findById(1L)).thenReturn(Optional.of(user));
+    RefundService svc = new RefundService(new RefundReadModel(refundRepo, etaRepo), refresher, cache, mock(RefundCheckLog.class), mock(RefundPollQueue.class), freeLease(), PROPS);
 
-    // Existing record oldStatus = RECEIVED
-    RefundRecord existing = new RefundRecord(user, 2025, RefundStatus.RECEIVED);
-    when(refundRepo.findByUserIdAndTaxYear(1L, 2025)).thenReturn(Optional.of(existing));
-
-    // IRS says PROCESSING => status change RECEIVED -> PROCESSING
-    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
-        2025, RefundStatus.PROCESSING, new BigDecimal("999.99"), "IRS-1"
-    ));
+    // Fresh persisted record => served as-is, no background refresh
+    RefundRecord existing = new RefundRecord(user1(), 2025, RefundStatus.PROCESSING);
+    when(refundRepo.findTopByUserIdOrderByTaxYearDesc(1L)).thenReturn(Optional.of(existing));
 
     // ETA prediction exists
     RefundEtaPrediction pred = mock(RefundEtaPrediction.class);
@@ -103,104 +96,62 @@ class RefundServiceTest {
         1L, 2025, "PROCESSING"
     )).thenReturn(Optional.of(pred));
 
-    when(refundRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
-    when(statusEventRepo.save(any(RefundStatusEvent.class))).thenAnswer(inv -> inv.getArgument(0));
-    when(outboxRepo.save(any(OutboxEvent.class))).thenAnswer(inv -> inv.getArgument(0));
-
     JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(1L, "u1@example.com", "USER");
     RefundStatusResponse resp = svc.getLatestRefundStatus(principal);
 
     assertEquals(2025, resp.taxYear());
     assertEquals("PROCESSING", resp.status());
-    assertEquals(new BigDecimal("999.99"), resp.expectedAmount());
-    assertEquals("IRS-1", resp.trackingId());
     assertEquals(predictedAt, resp.availableAtEstimated());
     assertNull(resp.aiExplanation());
 
-    // ✅ Event + outbox + cache invalidation on status change
-    verify(statusEventRepo, times(1)).save(any(RefundStatusEvent.class));
-    verify(outboxRepo, times(1)).save(any(OutboxEvent.class));
-    verify(redis, times(1)).delete("refund:latest:1");
+    // ✅ read-only path: no IRS reconciliation, no record writes
+    verifyNoInteractions(refresher);
+    verify(refundRepo, never()).save(any());
 
     // ✅ cached response written
-    verify(valueOps, times(1)).set(eq("refund:latest:1"), anyString(), eq(Duration.ofSeconds(60)));
+    verify(cache, times(1)).put(1L, resp);
   }
 
   @Test
-  void latest_whenStatusDoesNotChange_doesNotWriteEventOrOutbox_doesNotDeleteCache_stillCachesResponse() throws Exception {
+  void latest_whenNoRecordYet_refreshesFromIrsInline_andCachesResponse() {
     RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
-    UserRepository userRepo = mock(UserRepository.class);
-    IrsAdapter irs = mock(IrsAdapter.class);
-
-    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
-    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
     RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
 
-    StringRedisTemplate redis = mock(StringRedisTemplate.class);
-    @SuppressWarnings("unchecked")
-    ValueOperations<String, String> valueOps = mock(ValueOperations.class);
-    when(redis.opsForValue()).thenReturn(valueOps);
-    when(valueOps.get("refund:latest:1")).thenReturn(null); // no cache hit
+    RefundService svc = new RefundService(new RefundReadModel(refundRepo, etaRepo), refresher, cache, mock(RefundCheckLog.class), mock(RefundPollQueue.class), freeLease(), PROPS);
 
-    // ✅ key fix: register Java time module (Instant)
-    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    when(refundRepo.findTopByUserIdOrderByTaxYearDesc(1L)).thenReturn(Optional.empty());
 
-    RefundService svc = newSvc(refundRepo, userRepo, irs, statusEventRepo, outboxRepo, etaRepo, redis, objectMapper);
-
-    AppUser user = user1();
-    when(userRepo.findById(1L)).thenReturn(Optional.of(user)); // safe to include
-
-    // Existing record oldStatus = PROCESSING
-    RefundRecord existing = new RefundRecord(user, 2025, RefundStatus.PROCESSING);
-    when(refundRepo.findByUserIdAndTaxYear(1L, 2025)).thenReturn(Optional.of(existing));
-
-    // IRS returns PROCESSING again => no status change
-    when(irs.fetchMostRecentRefund(1L)).thenReturn(new IrsAdapter.IrsRefundResult(
-        2025, RefundStatus.PROCESSING, new BigDecimal("200.00"), "IRS-X"
-    ));
+    RefundRecord created = new RefundRecord(user1(), 2025, RefundStatus.RECEIVED);
+    created.apply(RefundStatusEvent.of(1L, 2025, "CA", null, RefundStatus.RECEIVED, new BigDecimal("200.00"), "IRS-X", "IRS"));
+    when(refresher.refresh(1L)).thenReturn(created);
 
     // No ETA prediction
     when(etaRepo.findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(
-        1L, 2025, "PROCESSING"
+        1L, 2025, "RECEIVED"
     )).thenReturn(Optional.empty());
 
-    when(refundRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
-
     JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(1L, "u1@example.com", "USER");
     RefundStatusResponse resp = svc.getLatestRefundStatus(principal);
 
-    assertEquals("PROCESSING", resp.status());
-    assertNull(resp.aiExplanation());
-
-    // ✅ no event/outbox/invalidate
-    verify(statusEventRepo, never()).save(any());
-    verify(outboxRepo, never()).save(any());
-    verify(redis, never()).delete(anyString());
+    assertEquals("RECEIVED", resp.status());
+    assertEquals("IRS-X", resp.trackingId());
+    assertNull(resp.availableAtEstimated());
 
-    // ✅ caches response anyway
-    verify(valueOps, times(1)).set(eq("refund:latest:1"), anyString(), eq(Duration.ofSeconds(60)));
+    verify(refresher, times(1)).refresh(1L);
+    verify(cache, times(1)).put(1L, resp);
   }
 
   @Test
-  void latest_returnsCachedResponse_whenCacheHit() throws Exception {
+  void latest_returnsCachedResponse_whenCacheHit() {
     RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
-    UserRepository userRepo = mock(UserRepository.class);
-    IrsAdapter irs = mock(IrsAdapter.class);
-
-    RefundStatusEventRepository statusEventRepo = mock(RefundStatusEventRepository.class);
-    OutboxEventRepository outboxRepo = mock(OutboxEventRepository.class);
     RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
+    RedisLease lease = freeLease();
 
-    StringRedisTemplate redis = mock(StringRedisTemplate.class);
-    @SuppressWarnings("unchecked")
-    ValueOperations<String, String> valueOps = mock(ValueOperations.class);
-    when(redis.opsForValue()).thenReturn(valueOps);
-
-    // ✅ key fix: register Java time module (Instant)
-    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
-
-    // cached JSON response
-    String cachedJson = objectMapper.writeValueAsString(new RefundStatusResponse(
+    when(cache.get(1L)).thenReturn(CachedRefundStatus.now(new RefundStatusResponse(
         2025,
         "AVAILABLE",
         Instant.now(),
@@ -208,10 +159,9 @@ class RefundServiceTest {
         "IRS-CACHED",
         null,
         null
-    ));
-    when(valueOps.get("refund:latest:1")).thenReturn(cachedJson);
+    )));
 
-    RefundService svc = newSvc(refundRepo, userRepo, irs, statusEventRepo, outboxRepo, etaRepo, redis, objectMapper);
+    RefundService svc = new RefundService(new RefundReadModel(refundRepo, etaRepo), refresher, cache, mock(RefundCheckLog.class), mock(RefundPollQueue.class), lease, PROPS);
 
     JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(1L, "u1@example.com", "USER");
     RefundStatusResponse resp = svc.getLatestRefundStatus(principal);
@@ -222,13 +172,125 @@ class RefundServiceTest {
     assertEquals("IRS-CACHED", resp.trackingId());
 
     // ✅ No downstream calls on cache hit
-    verifyNoInteractions(irs);
+    verifyNoInteractions(refresher);
     verifyNoInteractions(refundRepo);
-    verifyNoInteractions(statusEventRepo);
-    verifyNoInteractions(outboxRepo);
     verifyNoInteractions(etaRepo);
+    verifyNoInteractions(lease);
 
     // ✅ should not overwrite cache on cache hit
-    verify(valueOps, never()).set(anyString(), anyString(), any());
+    verify(cache, never()).put(anyLong(), any());
+  }
+
+  @Test
+  void latest_whenAnotherNodeHoldsLease_waitsForItsCachedResponse_insteadOfLoading() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
+
+    RefundStatusResponse loadedByOtherNode = new RefundStatusResponse(
+        2025, "SENT", Instant.now(), new BigDecimal("10.00"), "IRS-2", null, null
+    );
+    // miss on the fast path + the in-flight re-check, then the lease holder's value shows up
+    when(cache.get(1L)).thenReturn(null, null, CachedRefundStatus.now(loadedByOtherNode));
+
+    RedisLease lease = mock(RedisLease.class);
+    when(lease.tryAcquire(eq("refund:lease:1"), any())).thenReturn(null);
+
+    RefundService svc = new RefundService(new RefundReadModel(refundRepo, etaRepo), refresher, cache, mock(RefundCheckLog.class), mock(RefundPollQueue.class), lease, PROPS);
+
+    JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(1L, "u1@example.com", "USER");
+    RefundStatusResponse resp = svc.getLatestRefundStatus(principal);
+
+    assertEquals("SENT", resp.status());
+    verifyNoInteractions(refundRepo, etaRepo, refresher);
+    verify(lease, never()).release(anyString(), anyString());
+  }
+
+  @Test
+  void latest_whenPastSoftTtl_servesStaleImmediately_andRevalidatesInBackground() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
+
+    RefundStatusResponse stale = new RefundStatusResponse(
+        2025, "RECEIVED", Instant.now(), new BigDecimal("10.00"), "IRS-1", null, null
+    );
+    // 45s old: past the 30s soft TTL, within the 5m hard TTL
+    when(cache.get(1L)).thenReturn(new CachedRefundStatus(stale, Instant.now().minusSeconds(45)));
+
+    when(refundRepo.findTopByUserIdOrderByTaxYearDesc(1L))
+        .thenReturn(Optional.of(new RefundRecord(user1(), 2025, RefundStatus.SENT)));
+    when(etaRepo.findTopByUserIdAndTaxYearAndStatusOrderByCreatedAtDesc(1L, 2025, "SENT"))
+        .thenReturn(Optional.empty());
+
+    RefundService svc = new RefundService(new RefundReadModel(refundRepo, etaRepo), refresher, cache, mock(RefundCheckLog.class), mock(RefundPollQueue.class), freeLease(), PROPS);
+
+    JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(1L, "u1@example.com", "USER");
+    RefundStatusResponse resp = svc.getLatestRefundStatus(principal);
+
+    // ✅ caller gets the stale value without waiting
+    assertSame(stale, resp);
+
+    // ✅ rebuilt entry lands in the cache off the request path
+    verify(cache, timeout(2000)).put(eq(1L), argThat(r -> "SENT".equals(r.status())));
+  }
+
+  @Test
+  void bulk_servesCacheHits_andLoadsAllMissesInOneQuery_withoutPerUserCalls() {
+    RefundRecordRepository refundRepo = mock(RefundRecordRepository.class);
+    RefundEtaPredictionRepository etaRepo = mock(RefundEtaPredictionRepository.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    RefundStatusCache cache = mock(RefundStatusCache.class);
+
+    RefundStatusResponse cached1 = new RefundStatusResponse(2025, "SENT", Instant.now(), null, "IRS-1", null, null);
+    when(cache.getAll(any())).thenReturn(Map.of(1L, CachedRefundStatus.now(cached1)));
+
+    Instant now = Instant.now();
+    when(refundRepo.findStatusRows(argThat(ids -> ids.contains(2L)))).thenReturn(List.of(
+        new RefundRecordBulkRepository.StatusRow(2L, 2025, "APPROVED", now, null, "IRS-2", now.plusSeconds(86400)),
+        new RefundRecordBulkRepository.StatusRow(2L, 2024, "AVAILABLE", now, null, "IRS-2-OLD", null)
+    ));
+
+    RefundService svc = new RefundService(new RefundReadModel(refundRepo, etaRepo), refresher, cache, mock(RefundCheckLog.class), mock(RefundPollQueue.class), freeLease(), PROPS);
+
+    List<RefundStatusResponse> out = svc.getRefundStatuses(List.of(
+        new BulkRefundStatusRequest.Key(1L, null),
+        new BulkRefundStatusRequest.Key(2L, 2024),
+        new BulkRefundStatusRequest.Key(3L, null)
+    ));
+
+    assertSame(cached1, out.get(0));
+    assertEquals("IRS-2-OLD", out.get(1).trackingId());
+    // ✅ user 3 has no record: one batched IRS refresh for the never-seen users
+    verify(refresher).refreshAll(Set.of(3L));
+    assertNull(out.get(2));
+
+    // ✅ no per-user cache reads, record lookups or ETA queries
+    verify(cache, never()).get(anyLong());
+    verify(refundRepo, never()).findTopByUserIdOrderByTaxYearDesc(anyLong());
+    verifyNoInteractions(etaRepo);
+    // user 2's latest (2025) fills the cache in one call
+    verify(cache).putAll(argThat(m -> m.size() == 1 && "APPROVED".equals(m.get(2L).status())));
+  }
+
+  @Test
+  void matchingCachedEtag_whenIfNoneMatchMatches_promotesUserInPollQueue() {
+    RefundStatusCache cache = mock(RefundStatusCache.class);
+    RefundPollQueue pollQueue = mock(RefundPollQueue.class);
+    RefundRefreshService refresher = mock(RefundRefreshService.class);
+    when(cache.header(1L)).thenReturn(new RefundStatusCodec.Header(Instant.now(), "\"abc\"", "PROCESSING"));
+
+    RefundService svc = new RefundService(new RefundReadModel(mock(RefundRecordRepository.class), mock(RefundEtaPredictionRepository.class)),
+        refresher, cache, mock(RefundCheckLog.class), pollQueue, freeLease(), PROPS);
+    JwtService.JwtPrincipal principal = new JwtService.JwtPrincipal(1L, "u1@example.com", "USER");
+
+    assertEquals("\"abc\"", svc.matchingCachedEtag(principal, "W/\"abc\""));
+    assertNull(svc.matchingCachedEtag(principal, "\"other\""));
+
+    // ✅ the 304 path counts as a look, with the status from the cached header; a mismatch falls through
+    verify(pollQueue, times(1)).promote(1L, "PROCESSING");
+    verifyNoInteractions(refresher);
   }
-}
\ No newline at end of file
+}
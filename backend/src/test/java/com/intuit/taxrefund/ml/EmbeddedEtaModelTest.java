@@ -0,0 +1,71 @@
+package com.intuit.taxrefund.ml;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmbeddedEtaModelTest {
+
+  // x = [status=APPROVED, status=PROCESSING, state=CA, state=NY, expected_amount, dow, month]
+  // tree 0: APPROVED ? 2 : 10; tree 1: amount > 500 ? 4 : 0; y = 5 + 0.5 * sum
+  private static final String EXPORT = """
+      {
+        "format": "gbrt-v1", "modelName": "gbrt", "modelVersion": "20250301T000000Z",
+        "categorical": [
+          {"name": "status", "categories": ["APPROVED", "PROCESSING"]},
+          {"name": "filing_state", "categories": ["CA", "NY"]}
+        ],
+        "numeric": ["expected_amount", "dow", "month"],
+        "nFeatures": 7, "init": 5.0, "learningRate": 0.5,
+        "trees": [
+          {"feature": [0, -2, -2], "threshold": [0.5, -2, -2], "left": [1, -1, -1], "right": [2, -1, -1], "value": [6, 10, 2]},
+          {"feature": [4, -2, -2], "threshold": [500, -2, -2], "left": [1, -1, -1], "right": [2, -1, -1], "value": [2, 0, 4]}
+        ]
+      }
+      """;
+
+  // Monday
+  private static final Instant NOW = Instant.parse("2025-03-03T12:00:00Z");
+
+  private static EmbeddedEtaModel model() throws Exception {
+    return EmbeddedEtaModel.fromExport(new ObjectMapper().readTree(EXPORT));
+  }
+
+  @Test
+  void predict_walksFlattenedTrees_likeSklearn() throws Exception {
+    EmbeddedEtaModel m = model();
+
+    MlEtaClient.PredictResponse processing = m.predict(
+        new MlEtaClient.PredictRequest(1L, 2025, "PROCESSING", "ca", new BigDecimal("100.00")), NOW);
+    MlEtaClient.PredictResponse approved = m.predict(
+        new MlEtaClient.PredictRequest(1L, 2025, "APPROVED", "NY", new BigDecimal("1000.00")), NOW);
+
+    assertEquals(10, processing.etaDays());
+    assertEquals(8, approved.etaDays());
+    assertEquals("20250301T000000Z", approved.modelVersion());
+
+    // ✅ same feature record the Python service stores (state upper-cased, Monday = 0)
+    assertEquals(
+        "{\"status\":\"PROCESSING\",\"filing_state\":\"CA\",\"expected_amount\":100.0,\"dow\":0,\"month\":3}",
+        processing.featuresJson());
+  }
+
+  @Test
+  void predict_unknownCategory_isAllZeros_likeOneHotIgnore() throws Exception {
+    MlEtaClient.PredictResponse unknown = model().predict(
+        new MlEtaClient.PredictRequest(1L, 2025, "NEW_STATUS", null, null), NOW);
+
+    assertEquals(10, unknown.etaDays());
+  }
+
+  @Test
+  void fromExport_rejectsUnknownFormat() throws Exception {
+    String other = EXPORT.replace("gbrt-v1", "gbrt-v9");
+    assertThrows(IllegalArgumentException.class,
+        () -> EmbeddedEtaModel.fromExport(new ObjectMapper().readTree(other)));
+  }
+}
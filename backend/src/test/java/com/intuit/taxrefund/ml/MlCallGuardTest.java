@@ -0,0 +1,113 @@
+package com.intuit.taxrefund.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MlCallGuardTest {
+
+  private static MlCallGuard guard(Duration openDuration, Duration maxTimeout) {
+    return new MlCallGuard(new MlProps.Resilience(
+        2, openDuration, 4, Duration.ofMillis(50),
+        Duration.ofSeconds(1), Duration.ofMillis(10), maxTimeout, 3.0
+    ));
+  }
+
+  @Test
+  void opensAfterConsecutiveFailures_andRejectsWithoutCalling() {
+    MlCallGuard guard = guard(Duration.ofMinutes(1), Duration.ofSeconds(1));
+    AtomicInteger calls = new AtomicInteger();
+
+    for (int i = 0; i < 2; i++) {
+      assertThrows(IllegalStateException.class, () -> guard.call("predict", () -> {
+        calls.incrementAndGet();
+        throw new IllegalStateException("boom");
+      }));
+    }
+
+    // ✅ open: fails fast with the deferrable exception, service not called
+    assertThrows(MlUnavailableException.class, () -> guard.call("predict", () -> calls.incrementAndGet()));
+    assertEquals(2, calls.get());
+    assertFalse(guard.isCallPermitted());
+  }
+
+  @Test
+  void halfOpenProbe_successClosesCircuit() throws Exception {
+    MlCallGuard guard = guard(Duration.ofMillis(20), Duration.ofSeconds(1));
+    for (int i = 0; i < 2; i++) {
+      assertThrows(IllegalStateException.class, () -> guard.call("predict", () -> {
+        throw new IllegalStateException("boom");
+      }));
+    }
+
+    Thread.sleep(40);
+    assertTrue(guard.isCallPermitted());
+
+    assertEquals("ok", guard.call("predict", () -> "ok"));
+    assertEquals("ok", guard.call("predict", () -> "ok"));
+  }
+
+  @Test
+  void slowCall_timesOut_asUnavailable() {
+    MlCallGuard guard = guard(Duration.ofMinutes(1), Duration.ofMillis(50));
+
+    assertThrows(MlUnavailableException.class, () -> guard.call("predict", () -> {
+      Thread.sleep(1000);
+      return "late";
+    }));
+  }
+
+  @Test
+  void batchTimeout_isLearnedPerSizeBucket() throws Exception {
+    MlCallGuard guard = guard(Duration.ofMinutes(1), Duration.ofSeconds(1));
+
+    // small interactive batches are fast => their bucket's timeout drops to minTimeout
+    for (int i = 0; i < 32; i++) {
+      guard.call("predictBatch", 1, () -> "ok");
+    }
+
+    // ✅ a full backlog batch is not held to it
+    assertEquals("ok", guard.call("predictBatch", 50, () -> {
+      Thread.sleep(40);
+      return "ok";
+    }));
+    assertThrows(MlUnavailableException.class, () -> guard.call("predictBatch", 1, () -> {
+      Thread.sleep(40);
+      return "late";
+    }));
+  }
+
+  @Test
+  void timedOutCall_keepsItsBulkheadSlot_untilItActuallyFinishes() throws Exception {
+    MlCallGuard guard = new MlCallGuard(new MlProps.Resilience(
+        10, Duration.ofMinutes(1), 1, Duration.ofMillis(20),
+        Duration.ofSeconds(1), Duration.ofMillis(10), Duration.ofMillis(50), 3.0
+    ));
+    CountDownLatch finish = new CountDownLatch(1);
+
+    // ignores the cancel interrupt, like a blocking HTTP read
+    assertThrows(MlUnavailableException.class, () -> guard.call("predict", () -> {
+      while (true) {
+        try {
+          finish.await();
+          return "late";
+        } catch (InterruptedException ignore) {
+          // keep running
+        }
+      }
+    }));
+
+    // ✅ still in flight => no second call reaches the service
+    AtomicInteger calls = new AtomicInteger();
+    assertThrows(MlUnavailableException.class, () -> guard.call("predict", calls::incrementAndGet));
+    assertEquals(0, calls.get());
+
+    finish.countDown();
+    Thread.sleep(50);
+    assertEquals(1, guard.call("predict", calls::incrementAndGet));
+  }
+}
@@ -0,0 +1,112 @@
+package com.intuit.taxrefund.outbox.service;
+
+import com.intuit.taxrefund.outbox.OutboxProps;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRetentionJobTest {
+
+  private static OutboxRetentionJob job(JdbcTemplate jdbc, boolean archive) {
+    return new OutboxRetentionJob(jdbc, new OutboxProps(
+        50, Duration.ofMinutes(1), 20, 4, false, 50, Duration.ofSeconds(5), Duration.ofMinutes(30), Duration.ofHours(6),
+        new OutboxProps.Retention(Duration.ofDays(7), 2, archive, Duration.ofSeconds(5))
+    ));
+  }
+
+  // Runs every ConnectionCallback against a connection that records the statements it executes
+  private static List<String> recordDdl(JdbcTemplate jdbc) throws Exception {
+    List<String> sql = new ArrayList<>();
+    Connection con = mock(Connection.class);
+    Statement st = mock(Statement.class);
+    when(con.createStatement()).thenReturn(st);
+    when(st.execute(anyString())).thenAnswer(inv -> sql.add(inv.getArgument(0)));
+    when(jdbc.execute(any(ConnectionCallback.class)))
+        .thenAnswer(inv -> ((ConnectionCallback<?>) inv.getArgument(0)).doInConnection(con));
+    return sql;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void partitions(JdbcTemplate jdbc, OutboxRetentionJob.Partition... partitions) {
+    when(jdbc.query(contains("pg_inherits"), any(RowMapper.class))).thenReturn(List.of(partitions));
+  }
+
+  @Test
+  void expire_detachesConcurrentlyThenDrops_oldFullyProcessedPartitions_only() throws Exception {
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    List<String> sql = recordDdl(jdbc);
+    partitions(jdbc,
+        new OutboxRetentionJob.Partition("outbox_event_p20250310", false), // old, fully processed
+        new OutboxRetentionJob.Partition("outbox_event_p20250311", false), // old, still has a pending row
+        new OutboxRetentionJob.Partition("outbox_event_p20250313", false), // within maxAge
+        new OutboxRetentionJob.Partition("some_other_table", false)
+    );
+    when(jdbc.queryForObject(contains("outbox_event_p20250310"), eq(Boolean.class))).thenReturn(false);
+    when(jdbc.queryForObject(contains("outbox_event_p20250311"), eq(Boolean.class))).thenReturn(true);
+
+    job(jdbc, false).expire(LocalDate.of(2025, 3, 20));
+
+    // ✅ no plain DETACH/DROP on the parent: detach concurrently, then drop the standalone table, each under lock_timeout
+    assertEquals(List.of(
+        "set lock_timeout = 5000",
+        "alter table outbox_event detach partition outbox_event_p20250310 concurrently",
+        "reset lock_timeout",
+        "set lock_timeout = 5000",
+        "drop table outbox_event_p20250310",
+        "reset lock_timeout"
+    ), sql);
+  }
+
+  @Test
+  void expire_onlyDetaches_whenArchiving() throws Exception {
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    List<String> sql = recordDdl(jdbc);
+    partitions(jdbc, new OutboxRetentionJob.Partition("outbox_event_p20250301", false));
+    when(jdbc.queryForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+
+    job(jdbc, true).expire(LocalDate.of(2025, 3, 20));
+
+    assertTrue(sql.contains("alter table outbox_event detach partition outbox_event_p20250301 concurrently"));
+    assertTrue(sql.stream().noneMatch(s -> s.startsWith("drop")));
+  }
+
+  @Test
+  void expire_finalizesAnInterruptedDetach() throws Exception {
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    List<String> sql = recordDdl(jdbc);
+    partitions(jdbc, new OutboxRetentionJob.Partition("outbox_event_p20250301", true));
+
+    job(jdbc, false).expire(LocalDate.of(2025, 3, 20));
+
+    // ✅ a second CONCURRENTLY would fail on a pending detach; FINALIZE completes it
+    assertTrue(sql.contains("alter table outbox_event detach partition outbox_event_p20250301 finalize"));
+    assertTrue(sql.contains("drop table outbox_event_p20250301"));
+    verify(jdbc, never()).queryForObject(anyString(), eq(Boolean.class));
+  }
+
+  @Test
+  void premake_createsTodayAndUpcomingDays() throws Exception {
+    JdbcTemplate jdbc = mock(JdbcTemplate.class);
+    List<String> sql = recordDdl(jdbc);
+
+    job(jdbc, false).premake(LocalDate.of(2025, 12, 31));
+
+    assertTrue(sql.contains("create table if not exists outbox_event_p20251231 partition of outbox_event"
+        + " for values from ('2025-12-31 00:00:00+00') to ('2026-01-01 00:00:00+00')"));
+    assertTrue(sql.stream().anyMatch(s -> s.contains("outbox_event_p20260102")));
+    assertEquals(LocalDate.of(2026, 1, 2), OutboxRetentionJob.partitionDay("outbox_event_p20260102"));
+    assertNull(OutboxRetentionJob.partitionDay("some_other_table"));
+  }
+}
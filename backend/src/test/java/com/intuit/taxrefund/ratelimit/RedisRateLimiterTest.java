@@ -0,0 +1,153 @@
+package com.intuit.taxrefund.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisRateLimiterTest {
+
+  private static final RateLimitProps PROPS = new RateLimitProps(
+      true, null, null, new RateLimitProps.Lease(0.1, 1, Duration.ofSeconds(5))
+  );
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void tryConsume_admitsFromLeasedChunk_locally_andRemembersDenials() {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    RedisRateLimiter limiter = new RedisRateLimiter(redis, PROPS);
+
+    // capacity 30 => chunks of 3; first lease grants 3, second finds the bucket empty
+    when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+        .thenReturn(List.of(3L, "27"))
+        .thenReturn(List.of(0L, "0.5"));
+
+    // ✅ three requests, one round trip
+    for (int i = 0; i < 3; i++) {
+      assertTrue(limiter.tryConsume("rl:u:1", 30, 30, 1).allowed());
+    }
+    verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+
+    // ✅ chunk used up: lease again, denied, and the next denial is answered locally
+    assertFalse(limiter.tryConsume("rl:u:1", 30, 30, 1).allowed());
+    assertFalse(limiter.tryConsume("rl:u:1", 30, 30, 1).allowed());
+    verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void tryConsume_whenRedisFails_failsOpen() {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+        .thenThrow(new RuntimeException("down"));
+
+    assertTrue(new RedisRateLimiter(redis, PROPS).tryConsume("rl:u:1", 10, 10, 1).allowed());
+  }
+
+  // The Lua bucket, evaluated in Java against the script's ARGV (times are the limiter's real clock)
+  private static final class FakeBucket {
+    double tokens = -1;
+    long ts;
+
+    synchronized List<Object> eval(Object[] argv) {
+      long now = Long.parseLong((String) argv[0]);
+      int capacity = Integer.parseInt((String) argv[1]);
+      double refillPerMillis = Double.parseDouble((String) argv[2]);
+      int wanted = Integer.parseInt((String) argv[3]);
+      int requested = Integer.parseInt((String) argv[4]);
+      int returned = Integer.parseInt((String) argv[5]);
+
+      if (tokens < 0) { tokens = capacity; ts = now; }
+      tokens = Math.min(capacity, tokens + Math.max(0, now - ts) * refillPerMillis + returned);
+      ts = now;
+      long granted = 0;
+      if (tokens >= requested) {
+        granted = Math.max(requested, Math.min(wanted, (long) Math.floor(tokens)));
+        tokens -= granted;
+      }
+      return List.of(granted, String.valueOf(tokens));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void tryConsume_sparseRequestsAtTheRefillRate_areNeverRejected_andKeepTheBurst() throws Exception {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    FakeBucket bucket = new FakeBucket();
+    AtomicInteger returned = new AtomicInteger();
+    when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(inv -> {
+      Object[] argv = java.util.Arrays.copyOfRange(inv.getArguments(), 2, inv.getArguments().length);
+      returned.addAndGet(Integer.parseInt((String) argv[5]));
+      return bucket.eval(argv);
+    });
+
+    // capacity 10, chunks of 3, one token per 60ms; leases expire before the next request arrives
+    RedisRateLimiter limiter = new RedisRateLimiter(redis,
+        new RateLimitProps(true, null, null, new RateLimitProps.Lease(0.3, 1, Duration.ofMillis(40))));
+
+    for (int i = 0; i < 15; i++) {
+      assertTrue(limiter.tryConsume("rl:u:1", 10, 1000, 1).allowed(), "rejected request " + i);
+      Thread.sleep(70);
+    }
+    assertTrue(returned.get() > 0);
+
+    // ✅ each lease left 2 tokens unused; handed back, the full burst is still there (dropped, it would be ~1)
+    for (int i = 0; i < 9; i++) {
+      assertTrue(limiter.tryConsume("rl:u:1", 10, 1000, 1).allowed(), "rejected burst request " + i);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void tryConsume_whenChunkIsNoBiggerThanTheRequest_skipsLeasing() {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+        .thenReturn(List.of(1L, "4"));
+    RedisRateLimiter limiter = new RedisRateLimiter(redis, PROPS);
+
+    // capacity 5 => 10% rounds up to a chunk of 1
+    assertTrue(limiter.tryConsume("rl:u:1", 5, 5, 1).allowed());
+    assertTrue(limiter.tryConsume("rl:u:1", 5, 5, 1).allowed());
+
+    // ✅ each request is its own check, asking for exactly what it needs
+    verify(redis, times(2)).execute(any(RedisScript.class), eq(List.of("rl:u:1")),
+        any(), any(), any(), eq("1"), eq("1"), eq("0"), any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void shippedPolicies_leaseMoreThanOneToken_andAdmitMostRequestsLocally() throws Exception {
+    List<PropertySource<?>> yml = new YamlPropertySourceLoader().load("application", new ClassPathResource("application.yml"));
+    RateLimitProps shipped = new Binder(ConfigurationPropertySources.from(yml))
+        .bind("app.ratelimit", RateLimitProps.class).get();
+
+    for (RateLimitProps.Policy policy : List.of(shipped.refundLatest(), shipped.assistantChat())) {
+      StringRedisTemplate redis = mock(StringRedisTemplate.class);
+      // plenty left in Redis: every lease grants what it asks for (ARGV[4])
+      when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+          .thenAnswer(inv -> List.of(Long.parseLong((String) inv.getArgument(5)), "100"));
+      RedisRateLimiter limiter = new RedisRateLimiter(redis, shipped);
+
+      int chunk = limiter.chunkSize(policy.capacity(), policy.refillPerMinute() / 60000.0);
+      assertTrue(chunk > 1, "chunk " + chunk + " for " + policy);
+
+      for (int i = 0; i < chunk; i++) {
+        assertTrue(limiter.tryConsume("rl:u:1", policy.capacity(), policy.refillPerMinute(), 1).allowed());
+      }
+      // ✅ a whole chunk of requests, one Redis round trip
+      verify(redis, times(1)).execute(any(RedisScript.class), anyList(), any(Object[].class));
+    }
+  }
+}
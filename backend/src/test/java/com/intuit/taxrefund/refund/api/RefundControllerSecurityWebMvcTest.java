@@ -4,8 +4,11 @@ import com.intuit.taxrefund.auth.SecurityConfig;
 import com.intuit.taxrefund.auth.jwt.JwtAuthenticationFilter;
 import com.intuit.taxrefund.auth.jwt.JwtService;
 import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import com.intuit.taxrefund.refund.cache.CachedRefundStatus;
 import com.intuit.taxrefund.refund.service.MockIrsAdapter;
+import com.intuit.taxrefund.refund.service.RefundRefreshService;
 import com.intuit.taxrefund.refund.service.RefundService;
+import com.intuit.taxrefund.refund.stream.RefundUpdateStream;
 import com.intuit.taxrefund.ratelimit.RateLimitProps;
 import com.intuit.taxrefund.ratelimit.RedisRateLimiter;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,16 +17,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = RefundController.class)
@@ -33,12 +41,12 @@ class RefundControllerSecurityWebMvcTest {
   @Autowired MockMvc mvc;
 
   @MockBean RefundService refundService;
+  @MockBean RefundRefreshService refundRefreshService;
   @MockBean MockIrsAdapter mockIrsAdapter;
 
   @MockBean JwtService jwtService;
 
-  @MockBean
-  StringRedisTemplate redis;
+  @MockBean RefundUpdateStream refundUpdateStream;
 
   // satisfy RateLimitFilter constructor deps in WebMvc slice
   @MockBean RateLimitProps rateLimitProps;
@@ -77,4 +85,63 @@ class RefundControllerSecurityWebMvcTest {
             .header(HttpHeaders.AUTHORIZATION, "Bearer good-token"))
         .andExpect(status().isOk());
   }
-}
\ No newline at end of file
+
+  @Test
+  void latest_ifNoneMatchesCachedEtag_returns304_withoutLoadingBody() throws Exception {
+    when(jwtService.parseAndValidate("good-token"))
+        .thenReturn(new JwtService.JwtPrincipal(1L, "u1@example.com", "USER"));
+    when(refundService.matchingCachedEtag(any(), eq("\"abc\""))).thenReturn("\"abc\"");
+
+    mvc.perform(get("/api/refund/latest")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer good-token")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"abc\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"abc\""));
+
+    // ✅ answered from the stored ETag
+    verify(refundService, never()).getLatestRefundStatus(any());
+  }
+
+  @Test
+  void latest_returnsEtag_andRevalidatesTo304_whenNotInCache() throws Exception {
+    when(jwtService.parseAndValidate("good-token"))
+        .thenReturn(new JwtService.JwtPrincipal(1L, "u1@example.com", "USER"));
+    RefundStatusResponse resp = new RefundStatusResponse(
+        2025, "SENT", Instant.now(), new BigDecimal("10.00"), "IRS-1", null, null);
+    when(refundService.getLatestRefundStatus(any())).thenReturn(resp);
+    String etag = CachedRefundStatus.etagOf(resp);
+
+    mvc.perform(get("/api/refund/latest")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer good-token"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+    mvc.perform(get("/api/refund/latest")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer good-token")
+            .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  void stream_requiresAuth_returns401_whenNoBearer() throws Exception {
+    mvc.perform(get("/api/refund/stream"))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void stream_opensSse_andSendsCurrentStatusFirst() throws Exception {
+    when(jwtService.parseAndValidate("good-token"))
+        .thenReturn(new JwtService.JwtPrincipal(1L, "u1@example.com", "USER"));
+    RefundStatusResponse current = new RefundStatusResponse(
+        2025, "PROCESSING", Instant.now(), new BigDecimal("999.99"), "IRS-1", null, null);
+    when(refundService.getLatestRefundStatus(any())).thenReturn(current);
+    when(refundUpdateStream.open(1L)).thenReturn(new SseEmitter());
+
+    mvc.perform(get("/api/refund/stream")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer good-token"))
+        .andExpect(request().asyncStarted());
+
+    // ✅ registered for pushes, then the snapshot
+    verify(refundUpdateStream).send(eq(1L), any(SseEmitter.class), eq(current));
+  }
+}
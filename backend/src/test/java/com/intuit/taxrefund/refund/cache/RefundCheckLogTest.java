@@ -0,0 +1,57 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.intuit.taxrefund.refund.RefundProps;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefundCheckLogTest {
+
+  private static final RefundProps PROPS = new RefundProps(
+      null,
+      new RefundProps.Refresh(Duration.ofMinutes(5)),
+      null,
+      null,
+      null
+  );
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void markChecked_isVisibleLocally_andFlushedToRedisInOneBatch_keptOnFailure() {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    ValueOperations<String, String> valueOps = mock(ValueOperations.class);
+    when(redis.opsForValue()).thenReturn(valueOps);
+    RefundCheckLog log = new RefundCheckLog(redis, PROPS);
+
+    log.markChecked(1L);
+    log.markChecked(2L);
+
+    // ✅ buffered: answered locally, no Redis write yet
+    assertNotNull(log.lastChecked(1L));
+    verifyNoInteractions(valueOps);
+
+    // ✅ Redis down: still buffered for the next flush
+    when(redis.executePipelined(any(RedisCallback.class))).thenThrow(new RuntimeException("down"));
+    log.flush();
+    assertNotNull(log.lastChecked(2L));
+
+    // ✅ one pipelined batch, then reads go to Redis
+    reset(redis);
+    when(redis.opsForValue()).thenReturn(valueOps);
+    log.flush();
+    verify(redis, times(1)).executePipelined(any(RedisCallback.class));
+
+    Instant checkedAt = Instant.ofEpochMilli(1_700_000_000_000L);
+    when(valueOps.get(RefundCheckLog.key(1L))).thenReturn(Long.toString(checkedAt.toEpochMilli()));
+    assertEquals(checkedAt, log.lastChecked(1L));
+    assertNull(log.lastChecked(3L));
+  }
+}
@@ -0,0 +1,142 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefundStatusCacheTest {
+
+  private static final RefundProps PROPS = new RefundProps(
+      new RefundProps.Cache(
+          Duration.ofSeconds(30),
+          Duration.ofMinutes(5),
+          new RefundProps.Near(1_000_000L, Duration.ofSeconds(10)),
+          Duration.ofSeconds(3),
+          Duration.ofMillis(10)
+      ),
+      new RefundProps.Refresh(Duration.ofMinutes(5)),
+      new RefundProps.Stream(Duration.ofMinutes(30), Duration.ofSeconds(25)),
+      new RefundProps.Projection(8),
+      new RefundProps.Polling(false, 200, Map.of(), null)
+  );
+
+  private final ObjectMapper om = new ObjectMapper().findAndRegisterModules();
+  private final RefundStatusCodec codec = new RefundStatusCodec(om);
+
+  @SuppressWarnings("unchecked")
+  private final RedisTemplate<String, byte[]> redis = mock(RedisTemplate.class);
+  @SuppressWarnings("unchecked")
+  private final ValueOperations<String, byte[]> valueOps = mock(ValueOperations.class);
+  private final StringRedisTemplate pubsub = mock(StringRedisTemplate.class);
+
+  private RefundStatusCache newCache() {
+    when(redis.opsForValue()).thenReturn(valueOps);
+    return new RefundStatusCache(redis, pubsub, mock(RedisMessageListenerContainer.class), codec, PROPS);
+  }
+
+  private static RefundStatusResponse resp() {
+    return new RefundStatusResponse(
+        2025, "PROCESSING", Instant.now(), new BigDecimal("999.99"), "IRS-1", null, null
+    );
+  }
+
+  @Test
+  void get_afterRedisHit_servesFromNearCache_withoutAnotherRoundTrip() {
+    RefundStatusCache cache = newCache();
+    when(valueOps.get("refund:latest:1")).thenReturn(codec.encode(CachedRefundStatus.now(resp())));
+
+    assertEquals("PROCESSING", cache.get(1L).response().status());
+    assertEquals("PROCESSING", cache.get(1L).response().status());
+
+    verify(valueOps, times(1)).get("refund:latest:1");
+  }
+
+  @Test
+  void get_legacyJsonValue_isServed_andRewrittenInBinary() throws Exception {
+    RefundStatusCache cache = newCache();
+    when(valueOps.get("refund:latest:1"))
+        .thenReturn(om.writeValueAsString(resp()).getBytes(StandardCharsets.UTF_8));
+
+    CachedRefundStatus entry = cache.get(1L);
+
+    // ✅ not a miss: served, and marked past the soft TTL so it is revalidated
+    assertEquals("IRS-1", entry.response().trackingId());
+    assertTrue(entry.isOlderThan(Duration.ofSeconds(30)));
+
+    verify(valueOps).set(eq("refund:latest:1"),
+        argThat(b -> b[0] == RefundStatusCodec.MAGIC), any(Duration.class));
+  }
+
+  @SuppressWarnings("unchecked")
+  private void replacing(byte[] previous) {
+    when(redis.execute(any(RedisScript.class), eq(List.of("refund:latest:1")), any(byte[].class), any(byte[].class)))
+        .thenReturn(previous);
+  }
+
+  @Test
+  void putAndEvict_updateRedis_andBroadcastInvalidation() {
+    RefundStatusCache cache = newCache();
+    RefundStatusResponse before = resp();
+    replacing(codec.encode(CachedRefundStatus.now(before)));
+
+    cache.put(1L, new RefundStatusResponse(
+        2025, "APPROVED", Instant.now(), new BigDecimal("999.99"), "IRS-1", null, null));
+    cache.evict(1L);
+
+    // ✅ written with the hard TTL, replacing a value with another ETag
+    verify(redis).execute(any(RedisScript.class), eq(List.of("refund:latest:1")), any(byte[].class),
+        argThat((byte[] px) -> "300000".equals(new String(px, StandardCharsets.UTF_8))));
+    verify(redis).delete("refund:latest:1");
+    verify(pubsub, times(2)).convertAndSend(eq(RefundStatusCache.INVALIDATION_CHANNEL), endsWith(":1"));
+    assertNull(cache.get(1L));
+  }
+
+  @Test
+  void put_refillWithSameEtag_orOfAnAbsentKey_doesNotBroadcast() {
+    RefundStatusCache cache = newCache();
+    RefundStatusResponse same = resp();
+
+    replacing(codec.encode(CachedRefundStatus.now(same)));
+    cache.put(1L, same);
+
+    replacing(null);
+    cache.put(1L, same);
+
+    // ✅ nothing changed for peers, so no invalidation traffic
+    verify(redis, times(2)).execute(any(RedisScript.class), anyList(), any(byte[].class), any(byte[].class));
+    verifyNoInteractions(pubsub);
+  }
+
+  @Test
+  void invalidationMessage_fromPeer_dropsNearCopy() {
+    RefundStatusCache cache = newCache();
+
+    cache.put(1L, resp());
+    cache.onMessage(new DefaultMessage(
+        RefundStatusCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+        "other-node:1".getBytes(StandardCharsets.UTF_8)
+    ), null);
+
+    // near copy gone => falls through to Redis (empty here)
+    assertNull(cache.get(1L));
+    verify(valueOps).get("refund:latest:1");
+  }
+}
@@ -0,0 +1,92 @@
+package com.intuit.taxrefund.refund.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.intuit.taxrefund.refund.api.dto.RefundStatusResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RefundStatusCodecTest {
+
+  private final ObjectMapper om = new ObjectMapper().findAndRegisterModules();
+  private final RefundStatusCodec codec = new RefundStatusCodec(om);
+
+  @Test
+  void roundTrip_preservesAllFields() throws Exception {
+    Instant now = Instant.parse("2026-03-01T10:15:30.123456Z");
+    CachedRefundStatus entry = new CachedRefundStatus(new RefundStatusResponse(
+        2025, "SENT", now, new BigDecimal("1234.56"), "IRS-1", now.plusSeconds(86400), "explained"
+    ), now);
+
+    byte[] bytes = codec.encode(entry);
+    RefundStatusCodec.Decoded decoded = codec.decode(bytes);
+
+    assertFalse(decoded.legacy());
+    assertEquals(entry, decoded.entry());
+    // ✅ noticeably smaller than the JSON it replaces
+    assertTrue(bytes.length < om.writeValueAsBytes(entry).length / 2);
+  }
+
+  @Test
+  void roundTrip_handlesNullFields() {
+    CachedRefundStatus entry = CachedRefundStatus.now(new RefundStatusResponse(
+        2025, "RECEIVED", null, null, null, null, null
+    ));
+
+    assertEquals(entry, codec.decode(codec.encode(entry)).entry());
+  }
+
+  @Test
+  void decode_legacyJsonEnvelope_isMigratedNotDropped() throws Exception {
+    Instant cachedAt = Instant.parse("2026-03-01T10:15:30Z");
+    CachedRefundStatus entry = new CachedRefundStatus(new RefundStatusResponse(
+        2025, "PROCESSING", cachedAt, new BigDecimal("10.00"), "IRS-2", null, null
+    ), cachedAt);
+
+    RefundStatusCodec.Decoded decoded = codec.decode(om.writeValueAsBytes(entry));
+
+    assertTrue(decoded.legacy());
+    assertEquals(cachedAt, decoded.entry().cachedAt());
+    assertEquals("PROCESSING", decoded.entry().response().status());
+    assertEquals("IRS-2", decoded.entry().response().trackingId());
+  }
+
+  @Test
+  void decode_unknownVersion_isRejected() {
+    byte[] future = {RefundStatusCodec.MAGIC, (byte) 99, 0, 0};
+
+    assertThrows(IllegalArgumentException.class, () -> codec.decode(future));
+    assertThrows(IllegalArgumentException.class, () -> codec.decode("garbage".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void peek_readsEtag_withoutDecodingResponse_andV1IsMigrated() throws Exception {
+    CachedRefundStatus entry = CachedRefundStatus.now(new RefundStatusResponse(
+        2025, "APPROVED", Instant.now(), new BigDecimal("5.00"), "IRS-3", null, null
+    ));
+
+    RefundStatusCodec.Header header = codec.peek(codec.encode(entry));
+    assertEquals(entry.etag(), header.etag());
+    assertEquals(entry.cachedAt(), header.cachedAt());
+    assertEquals("APPROVED", header.status());
+
+    // v1 value: same layout without the etag
+    byte[] v2 = codec.encode(entry);
+    ByteArrayOutputStream v1 = new ByteArrayOutputStream();
+    v1.write(new byte[] {RefundStatusCodec.MAGIC, RefundStatusCodec.VERSION_1});
+    int etagLen = 1 + entry.etag().length();
+    v1.write(v2, 2, 12);
+    v1.write(v2, 14 + etagLen, v2.length - 14 - etagLen);
+
+    // ✅ no header for older formats; full decode computes the etag and flags a rewrite
+    assertNull(codec.peek(v1.toByteArray()));
+    RefundStatusCodec.Decoded decoded = codec.decode(v1.toByteArray());
+    assertTrue(decoded.legacy());
+    assertEquals(entry.etag(), decoded.entry().etag());
+  }
+}
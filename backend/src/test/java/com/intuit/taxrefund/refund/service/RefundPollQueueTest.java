@@ -0,0 +1,92 @@
+package com.intuit.taxrefund.refund.service;
+
+import com.intuit.taxrefund.refund.RefundProps;
+import com.intuit.taxrefund.refund.model.RefundStatus;
+import com.intuit.taxrefund.refund.repo.RefundRecordRepository.DuePoll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RefundPollQueueTest {
+
+  private static final RefundProps PROPS = new RefundProps(null, null, null, null, new RefundProps.Polling(
+      true, 200, Map.of(RefundStatus.PROCESSING, Duration.ofMinutes(30), RefundStatus.NOT_FOUND, Duration.ofHours(6)),
+      new RefundProps.Queue(Duration.ofHours(1), Duration.ofMinutes(2), Duration.ofHours(6), Set.of(RefundStatus.NOT_FOUND))
+  ));
+
+  @SuppressWarnings("unchecked")
+  private static StringRedisTemplate redisWithZSet(ZSetOperations<String, String> zset) {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    when(redis.opsForZSet()).thenReturn(zset);
+    return redis;
+  }
+
+  @Test
+  void score_demotesConfiguredStatuses() {
+    RefundPollQueue queue = new RefundPollQueue(mock(StringRedisTemplate.class), PROPS);
+    Instant now = Instant.now();
+
+    // ✅ lower score = popped first
+    assertTrue(queue.score(RefundStatus.PROCESSING, now) < queue.score(RefundStatus.NOT_FOUND, now));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void promote_onlyMarksUserHot_soAHotReaderIsNeverPolledFasterThanTheirCadence() {
+    ZSetOperations<String, String> zset = mock(ZSetOperations.class);
+    StringRedisTemplate redis = redisWithZSet(zset);
+    RefundPollQueue queue = new RefundPollQueue(redis, PROPS);
+
+    queue.promote(1L, "PROCESSING");
+
+    // ✅ the hot mark lapses after hotInterval; nothing is put in the poll queue itself,
+    //    so the user is only polled once claimDuePolls finds their record due
+    verify(zset).add(eq(RefundPollQueue.HOT_KEY), eq("1"),
+        doubleThat(t -> t > Instant.now().plus(Duration.ofMinutes(1)).toEpochMilli()));
+    verify(zset, never()).add(eq(RefundPollQueue.KEY), anyString(), anyDouble());
+    verify(redis, never()).execute(any(RedisScript.class), anyList(), any(Object[].class));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void promote_skipsStatusesWithoutCadence_andIsThrottledPerUser() {
+    ZSetOperations<String, String> zset = mock(ZSetOperations.class);
+    RefundPollQueue queue = new RefundPollQueue(redisWithZSet(zset), PROPS);
+
+    queue.promote(1L, "AVAILABLE");
+    queue.promote(2L, "PROCESSING");
+    queue.promote(2L, "PROCESSING");
+
+    // ✅ terminal readers are never queued; one hot mark per user per hotInterval on this node
+    verify(zset, never()).add(anyString(), eq("1"), anyDouble());
+    verify(zset, times(1)).add(anyString(), eq("2"), anyDouble());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  void offer_enqueuesDueRecords_withTheBoostAppliedToHotOnesInRedis() {
+    StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    RefundPollQueue queue = new RefundPollQueue(redis, PROPS);
+    DuePoll due = new DuePoll() {
+      public Long getUserId() { return 7L; }
+      public String getStatus() { return "PROCESSING"; }
+    };
+
+    assertTrue(queue.offer(List.of(due)));
+
+    // ✅ one script call: now, boost, then (member, score) pairs
+    verify(redis).execute(any(RedisScript.class), eq(List.of(RefundPollQueue.KEY, RefundPollQueue.HOT_KEY)),
+        any(), eq("3600000"), eq("7"), any());
+  }
+}
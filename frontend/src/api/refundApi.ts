@@ -9,6 +9,71 @@ export async function getLatestRefund(): Promise<RefundStatusResponse> {
   return (await res.json()) as RefundStatusResponse;
 }
 
+// Live updates from /api/refund/stream. SSE is read over fetch (EventSource cannot send the bearer token).
+// The first event of every connection is the current status. onUnavailable fires once per outage
+// (a connection that ends without delivering anything) so the caller can fall back to getLatestRefund.
+// Returns a function that closes the stream.
+export function subscribeRefundUpdates(
+  onUpdate: (refund: RefundStatusResponse) => void,
+  onUnavailable?: () => void
+): () => void {
+  const controller = new AbortController();
+  let down = false;
+
+  (async () => {
+    while (!controller.signal.aborted) {
+      let received = false;
+      try {
+        const res = await apiFetch('/api/refund/stream', {
+          headers: { Accept: 'text/event-stream' },
+          signal: controller.signal
+        });
+        if (res.ok && res.body) {
+          await readEvents(res.body, (refund) => {
+            received = true;
+            down = false;
+            onUpdate(refund);
+          });
+        }
+      } catch {
+        // dropped connection (or closed by us): reconnect below
+      }
+      if (controller.signal.aborted) return;
+      if (!received && !down) {
+        down = true;
+        onUnavailable?.();
+      }
+      await new Promise((r) => setTimeout(r, 3000));
+    }
+  })();
+
+  return () => controller.abort();
+}
+
+async function readEvents(body: ReadableStream<Uint8Array>, onUpdate: (refund: RefundStatusResponse) => void) {
+  const reader = body.pipeThrough(new TextDecoderStream()).getReader();
+  let buffer = '';
+
+  for (;;) {
+    const { value, done } = await reader.read();
+    if (done) return;
+    buffer += value;
+
+    // events are separated by a blank line; comment lines (heartbeats) carry no data
+    let end: number;
+    while ((end = buffer.indexOf('\n\n')) >= 0) {
+      const data = buffer.slice(0, end)
+        .split('\n')
+        .filter((line) => line.startsWith('data:'))
+        .map((line) => line.slice(5).trimStart())
+        .join('\n');
+      buffer = buffer.slice(end + 2);
+
+      if (data) onUpdate(JSON.parse(data) as RefundStatusResponse);
+    }
+  }
+}
+
 export async function simulateRefundUpdate(payload: {
   taxYear: number;
   status: string;
@@ -1,5 +1,5 @@
 import React, { useCallback, useEffect, useState } from 'react';
-import { getLatestRefund, simulateRefundUpdate } from '../api/refundApi';
+import { getLatestRefund, simulateRefundUpdate, subscribeRefundUpdates } from '../api/refundApi';
 import { askAssistant, type AssistantResponse } from '../api/assistantApi';
 import type { RefundStatusResponse } from '../api/.types';
 import { errorMessage } from '../utils';
@@ -43,9 +43,17 @@ export default function DashboardPage({
     }
   }, [onError]);
 
-  // runs once on mount
+  // the stream's first event is the current status, then it pushes status/ETA changes (no polling);
+  // GET /latest only when the stream cannot be reached
   useEffect(() => {
-    load();
+    setLoading(true);
+    return subscribeRefundUpdates(
+      (refund) => {
+        setData(refund);
+        setLoading(false);
+      },
+      load
+    );
   }, [load]);
 
   async function demoAdvanceStatus() {
@@ -4,15 +4,17 @@ import { vi } from 'vitest';
 
 vi.mock('../api/refundApi', () => ({
   getLatestRefund: vi.fn(),
-  simulateRefundUpdate: vi.fn()
+  simulateRefundUpdate: vi.fn(),
+  subscribeRefundUpdates: vi.fn()
 }));
 
-import { getLatestRefund, simulateRefundUpdate } from '../api/refundApi';
+import { getLatestRefund, simulateRefundUpdate, subscribeRefundUpdates } from '../api/refundApi';
 import DashboardPage from '../pages/DashboardPage';
 import type { RefundStatusResponse } from '../api/.types';
 
 const mockGetLatestRefund = vi.mocked(getLatestRefund);
 const mockSimulateRefundUpdate = vi.mocked(simulateRefundUpdate);
+const mockSubscribeRefundUpdates = vi.mocked(subscribeRefundUpdates);
 
 type RefundStatus = RefundStatusResponse['status'];
 
@@ -38,6 +40,27 @@ async function expectStatus(status: RefundStatus) {
 describe('DashboardPage', () => {
   beforeEach(() => {
     vi.resetAllMocks();
+
+    // stream unreachable by default: the page falls back to getLatestRefund
+    mockSubscribeRefundUpdates.mockImplementation((_onUpdate, onUnavailable) => {
+      onUnavailable?.();
+      return () => {};
+    });
+  });
+
+  it('takes the initial status from the stream without fetching it separately', async () => {
+    const onLogout = vi.fn();
+    const onError = vi.fn();
+
+    mockSubscribeRefundUpdates.mockImplementation((onUpdate) => {
+      onUpdate(makeRefund('APPROVED'));
+      return () => {};
+    });
+
+    render(<DashboardPage onLogout={onLogout} onError={onError} />);
+
+    await expectStatus('APPROVED');
+    expect(mockGetLatestRefund).not.toHaveBeenCalled();
   });
 
   it('loads and displays refund status', async () => {
@@ -2,6 +2,7 @@ import os, json
 from datetime import datetime, timezone, timedelta
 from typing import Optional
 
+import numpy as np
 import pandas as pd
 from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel, Field
@@ -15,6 +16,11 @@ import joblib
 DB_URL = os.environ["ML_DB_URL"]  # e.g. postgresql+psycopg2://user:pass@db:5432/refund
 MODEL_PATH = os.environ.get("ML_MODEL_PATH", "/models/eta_model.joblib")
 MODEL_META_PATH = os.environ.get("ML_MODEL_META_PATH", "/models/eta_model_meta.json")
+# Portable dump of the trained trees for in-process evaluation (backend ml.mode=embedded)
+MODEL_EXPORT_PATH = os.environ.get("ML_MODEL_EXPORT_PATH", "/models/eta_model.json")
+
+CAT_FEATURES = ["status", "filing_state"]
+NUM_FEATURES = ["expected_amount", "dow", "month"]
 
 app = FastAPI(title="Refund ETA ML Service")
 
@@ -31,15 +37,37 @@ class PredictResponse(BaseModel):
     modelVersion: str
     features: dict
 
-def load_model():
-    if not os.path.exists(MODEL_PATH):
+class BatchPredictRequest(BaseModel):
+    items: list[PredictRequest] = Field(max_length=1000)
+
+class BatchPredictResponse(BaseModel):
+    # same order as the request items
+    predictions: list[PredictResponse]
+
+# path -> ((mtime_ns, size), loaded value); re-read only after the file changes (e.g. /train)
+_file_cache = {}
+
+def load_cached(path, loader):
+    try:
+        st = os.stat(path)
+    except FileNotFoundError:
+        _file_cache.pop(path, None)
         return None
-    return joblib.load(MODEL_PATH)
+    sig = (st.st_mtime_ns, st.st_size)
+    hit = _file_cache.get(path)
+    if hit is None or hit[0] != sig:
+        hit = (sig, loader(path))
+        _file_cache[path] = hit
+    return hit[1]
+
+def load_model():
+    return load_cached(MODEL_PATH, joblib.load)
 
 def load_meta():
-    if not os.path.exists(MODEL_META_PATH):
+    meta = load_cached(MODEL_META_PATH, lambda p: json.load(open(p, "r")))
+    if meta is None:
         return {"modelName": "gbrt", "modelVersion": "untrained"}
-    return json.load(open(MODEL_META_PATH, "r"))
+    return meta
 
 engine = create_engine(DB_URL, pool_pre_ping=True)
 
@@ -52,6 +80,8 @@ def build_training_frame(limit=200000):
           occurred_at,
           max(case when to_status='AVAILABLE' then occurred_at end) over (partition by user_id, tax_year) as available_at
         from refund_status_event
+        -- amount/tracking corrections repeat the status; only transitions (and first sightings) are samples
+        where from_status is null or from_status <> to_status
       )
       select
         user_id, tax_year, filing_state, status,
@@ -88,8 +118,8 @@ def train_and_save():
 
     pre = ColumnTransformer(
         transformers=[
-            ("cat", OneHotEncoder(handle_unknown="ignore"), ["status", "filing_state"]),
-            ("num", "passthrough", ["expected_amount", "dow", "month"]),
+            ("cat", OneHotEncoder(handle_unknown="ignore"), CAT_FEATURES),
+            ("num", "passthrough", NUM_FEATURES),
         ]
     )
 
@@ -108,8 +138,46 @@ def train_and_save():
         "features": ["status", "filing_state", "expected_amount", "dow", "month"]
     }
     json.dump(meta, open(MODEL_META_PATH, "w"))
+    json.dump(export_model(pipe, meta), open(MODEL_EXPORT_PATH, "w"))
     return meta
 
+def export_model(pipe, meta):
+    """
+    Flattens the fitted pipeline into plain arrays:
+    x = [one-hot(status), one-hot(filing_state), expected_amount, dow, month]  (unknown category -> all zeros)
+    y = init + learningRate * sum(tree(x)), where a node goes left iff float32(x[feature]) <= threshold
+    and leaves have left == right == -1.
+    """
+    pre = pipe.named_steps["pre"]
+    model = pipe.named_steps["model"]
+    enc = pre.named_transformers_["cat"]
+
+    trees = []
+    for est in model.estimators_[:, 0]:
+        t = est.tree_
+        trees.append({
+            "feature": t.feature.tolist(),
+            "threshold": t.threshold.tolist(),
+            "left": t.children_left.tolist(),
+            "right": t.children_right.tolist(),
+            "value": t.value[:, 0, 0].tolist(),
+        })
+
+    return {
+        "format": "gbrt-v1",
+        "modelName": meta.get("modelName", "gbrt"),
+        "modelVersion": meta.get("modelVersion", "unknown"),
+        "categorical": [
+            {"name": name, "categories": [str(c) for c in cats]}
+            for name, cats in zip(CAT_FEATURES, enc.categories_)
+        ],
+        "numeric": NUM_FEATURES,
+        "nFeatures": int(model.n_features_in_),
+        "init": float(np.ravel(model.init_.predict(np.zeros((1, model.n_features_in_))))[0]),
+        "learningRate": float(model.learning_rate),
+        "trees": trees,
+    }
+
 @app.get("/health")
 def health():
     return {"ok": True}
@@ -118,6 +186,18 @@ def health():
 def model_info():
     return load_meta()
 
+@app.get("/model/export")
+def model_export():
+    if os.path.exists(MODEL_EXPORT_PATH):
+        return json.load(open(MODEL_EXPORT_PATH, "r"))
+    pipe = load_model()
+    if pipe is None:
+        raise HTTPException(503, "Model not trained yet. Call /train first.")
+    # model trained before the export existed
+    export = export_model(pipe, load_meta())
+    json.dump(export, open(MODEL_EXPORT_PATH, "w"))
+    return export
+
 @app.post("/train")
 def train():
     try:
@@ -126,34 +206,43 @@ def train():
         # Return the actual reason instead of a generic 500
         raise HTTPException(status_code=500, detail=str(e))
 
-@app.post("/predict", response_model=PredictResponse)
-def predict(req: PredictRequest):
+def feature_row(req: PredictRequest, now: datetime) -> dict:
+    return {
+        "status": req.status,
+        "filing_state": (req.filingState or "NA").upper(),
+        "expected_amount": float(req.expectedAmount or 0.0),
+        "dow": now.weekday(),
+        "month": now.month
+    }
+
+def predict_rows(reqs: list[PredictRequest]) -> list[PredictResponse]:
     pipe = load_model()
     meta = load_meta()
     if pipe is None:
         raise HTTPException(503, "Model not trained yet. Call /train first.")
+    if not reqs:
+        return []
 
     now = datetime.now(timezone.utc)
-    dow = now.weekday()
-    month = now.month
-    expected = float(req.expectedAmount or 0.0)
+    rows = [feature_row(r, now) for r in reqs]
 
-    filing_state = (req.filingState or "NA").upper()
+    # one vectorized predict for the whole batch
+    yhat = pipe.predict(pd.DataFrame(rows))
 
-    X = pd.DataFrame([{
-        "status": req.status,
-        "filing_state": filing_state,
-        "expected_amount": expected,
-        "dow": dow,
-        "month": month
-    }])
-
-    yhat = float(pipe.predict(X)[0])
-    eta_days = max(0, min(3650, int(round(yhat))))
-
-    return PredictResponse(
-        etaDays=eta_days,
-        modelName=meta.get("modelName", "gbrt"),
-        modelVersion=meta.get("modelVersion", "unknown"),
-        features={"status": req.status, "filing_state": filing_state, "expected_amount": expected, "dow": dow, "month": month}
-    )
\ No newline at end of file
+    return [
+        PredictResponse(
+            etaDays=max(0, min(3650, int(round(float(y))))),
+            modelName=meta.get("modelName", "gbrt"),
+            modelVersion=meta.get("modelVersion", "unknown"),
+            features=row
+        )
+        for y, row in zip(yhat, rows)
+    ]
+
+@app.post("/predict", response_model=PredictResponse)
+def predict(req: PredictRequest):
+    return predict_rows([req])[0]
+
+@app.post("/predict/batch", response_model=BatchPredictResponse)
+def predict_batch(req: BatchPredictRequest):
+    return BatchPredictResponse(predictions=predict_rows(req.items))